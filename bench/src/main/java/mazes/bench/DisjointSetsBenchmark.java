@@ -0,0 +1,118 @@
+package mazes.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The even/odd patterns from Tester: evenOdd joins every element to 0 or
+ * 1, slowEvenOdd builds two long chains from the top down, the worst case
+ * for union by rank without path compression. Each invocation starts
+ * from fresh sets, so creating them is part of the time, as it is in
+ * Tester. FasterDisjointSets$OfInt is called through its int methods,
+ * the other DisjointSets through the boxed ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisjointSetsBenchmark {
+
+	private static final MethodHandle INT_UNION = Mazes.method("IntDisjointSets", "union", void.class, int.class, int.class);
+	private static final MethodHandle INT_SETS = Mazes.method("IntDisjointSets", "getNumberOfSets", int.class);
+	private static final MethodHandle MAKE_SET = Mazes.method("DisjointSets", "makeSet", void.class, Object.class);
+	private static final MethodHandle UNION = Mazes.method("DisjointSets", "union", void.class, Object.class, Object.class);
+	private static final MethodHandle SETS = Mazes.method("DisjointSets", "getNumberOfSets", int.class);
+	private static final MethodHandle MAKE_INT_SET = Mazes.method("FasterDisjointSets$OfInt", "makeSet", void.class, int.class);
+	private static final MethodHandle UNION_INTS = Mazes.method("FasterDisjointSets$OfInt", "union", void.class, int.class, int.class);
+
+	@Param({ "ArrayDisjointSets", "ConcurrentDisjointSets", "FasterDisjointSets", "FasterDisjointSets$OfInt", "TrivialDisjointSets" })
+	public String implementation;
+
+	@Param({ "50000" })
+	public int size;
+
+	private MethodHandle create;
+	private boolean generic;
+	private boolean intKeys;
+
+	@Setup
+	public void setup() {
+		generic = !Mazes.type("IntDisjointSets").isAssignableFrom(Mazes.type(implementation));
+		intKeys = implementation.equals("FasterDisjointSets$OfInt");
+		create = generic ? Mazes.constructor(implementation) : Mazes.constructor(implementation, int.class);
+	}
+
+	@Benchmark
+	public int evenOdd() throws Throwable {
+		if (intKeys) {
+			Object ds = newIntKeySets();
+			for (int i = 2; i < size - 1; i += 2) {
+				UNION_INTS.invokeExact(ds, i, 0);
+				UNION_INTS.invokeExact(ds, i + 1, 1);
+			}
+			return (int)SETS.invokeExact(ds);
+		}
+		if (generic) {
+			Object ds = newGenericSets();
+			for (int i = 2; i < size - 1; i += 2) {
+				UNION.invokeExact(ds, (Object)i, (Object)0);
+				UNION.invokeExact(ds, (Object)(i + 1), (Object)1);
+			}
+			return (int)SETS.invokeExact(ds);
+		}
+		Object ds = (Object)create.invokeExact(size);
+		for (int i = 2; i < size - 1; i += 2) {
+			INT_UNION.invokeExact(ds, i, 0);
+			INT_UNION.invokeExact(ds, i + 1, 1);
+		}
+		return (int)INT_SETS.invokeExact(ds);
+	}
+
+	@Benchmark
+	public int slowEvenOdd() throws Throwable {
+		if (intKeys) {
+			Object ds = newIntKeySets();
+			for (int i = size - 1; i >= 2; i--)
+				UNION_INTS.invokeExact(ds, i, i - 2);
+			return (int)SETS.invokeExact(ds);
+		}
+		if (generic) {
+			Object ds = newGenericSets();
+			for (int i = size - 1; i >= 2; i--)
+				UNION.invokeExact(ds, (Object)i, (Object)(i - 2));
+			return (int)SETS.invokeExact(ds);
+		}
+		Object ds = (Object)create.invokeExact(size);
+		for (int i = size - 1; i >= 2; i--)
+			INT_UNION.invokeExact(ds, i, i - 2);
+		return (int)INT_SETS.invokeExact(ds);
+	}
+
+	private Object newIntKeySets() throws Throwable {
+		Object ds = (Object)create.invokeExact();
+		for (int i = 0; i < size; i++)
+			MAKE_INT_SET.invokeExact(ds, i);
+		return ds;
+	}
+
+	private Object newGenericSets() throws Throwable {
+		Object ds = (Object)create.invokeExact();
+		for (int i = 0; i < size; i++)
+			MAKE_SET.invokeExact(ds, (Object)i);
+		return ds;
+	}
+}
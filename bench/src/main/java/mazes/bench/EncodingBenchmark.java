@@ -0,0 +1,85 @@
+package mazes.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turns one generated maze into pixels: the in-memory image, the image
+ * through ImageIO as the testers used to save it, the streamed PBM and
+ * BMP encoders, and a scaled region. Files are written to a stream which
+ * drops everything, so the disk is left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+	private static final MethodHandle NEW_MAZE = Mazes.constructor("Maze", int.class, int.class, long.class);
+	private static final MethodHandle GET_IMAGE = Mazes.method("Maze", "getMazeImage", BufferedImage.class);
+	private static final MethodHandle RENDER_REGION = Mazes.method("Maze", "renderRegion", BufferedImage.class,
+	    int.class, int.class, int.class, int.class, int.class);
+	private static final MethodHandle WRITE_ROWS = Mazes.method("Maze", "writeRows", void.class, "MazeRowSink");
+	private static final MethodHandle NEW_PBM = Mazes.constructor("PbmRowSink", OutputStream.class);
+	private static final MethodHandle NEW_BMP = Mazes.constructor("BmpRowSink", "java.nio.channels.WritableByteChannel");
+
+	@Param({ "500", "2000" })
+	public int size;
+
+	private Object maze;
+
+	@Setup
+	public void setup() throws Throwable {
+		maze = (Object)NEW_MAZE.invokeExact(size, size, 1L);
+	}
+
+	@Benchmark
+	public Object mazeImage() throws Throwable {
+		return (Object)GET_IMAGE.invokeExact(maze);
+	}
+
+	@Benchmark
+	public boolean imageIOBmp() throws Throwable {
+		BufferedImage image = (BufferedImage)(Object)GET_IMAGE.invokeExact(maze);
+		return ImageIO.write(image, "bmp", OutputStream.nullOutputStream());
+	}
+
+	@Benchmark
+	public void streamPbm() throws Throwable {
+		WRITE_ROWS.invokeExact(maze, (Object)NEW_PBM.invokeExact((Object)OutputStream.nullOutputStream()));
+	}
+
+	@Benchmark
+	public void streamBmp() throws Throwable {
+		Object channel = Channels.newChannel(OutputStream.nullOutputStream());
+		WRITE_ROWS.invokeExact(maze, (Object)NEW_BMP.invokeExact(channel));
+	}
+
+	/**
+	 * A 100 x 100 cell window from the middle, 4 pixels per image pixel.
+	 */
+	@Benchmark
+	public Object renderRegion() throws Throwable {
+		int corner = size / 2 - 50;
+		return (Object)RENDER_REGION.invokeExact(maze, corner, corner, 100, 100, 4);
+	}
+}
@@ -0,0 +1,67 @@
+package mazes.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates square mazes with each Maze.Algorithm, and with
+ * EllerGenerator writing to a sink which drops every row. Every
+ * invocation uses the next seed, so no two mazes are the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+	private static final MethodHandle NEW_MAZE = Mazes.constructor("Maze", int.class, int.class, "Maze$Algorithm", long.class);
+	private static final MethodHandle NEW_ELLER = Mazes.constructor("EllerGenerator", int.class, int.class, long.class);
+	private static final MethodHandle GENERATE = Mazes.method("EllerGenerator", "generate", void.class, "MazeRowSink");
+
+	/**
+	 * A Maze.Algorithm, or ELLER for EllerGenerator
+	 */
+	@Param({ "RANDOM_WALLS", "SHUFFLED_EDGES", "PARALLEL", "TILED", "BACKTRACKER", "PRIM", "WILSON", "ELLER" })
+	public String algorithm;
+
+	@Param({ "100", "1000", "3000" })
+	public int size;
+
+	private Object mazeAlgorithm;
+	private Object discard;
+	private long seed;
+
+	@Setup
+	public void setup() {
+		if (algorithm.equals("ELLER")) {
+			Class<?> sinkType = Mazes.type("MazeRowSink");
+			discard = Proxy.newProxyInstance(sinkType.getClassLoader(), new Class<?>[] { sinkType }, (proxy, method, args) -> null);
+		} else {
+			mazeAlgorithm = Mazes.constant("Maze$Algorithm", algorithm);
+		}
+	}
+
+	@Benchmark
+	public Object generate() throws Throwable {
+		if (mazeAlgorithm != null)
+			return (Object)NEW_MAZE.invokeExact(size, size, mazeAlgorithm, seed++);
+		Object eller = (Object)NEW_ELLER.invokeExact(size, size, seed++);
+		GENERATE.invokeExact(eller, discard);
+		return eller;
+	}
+}
@@ -0,0 +1,70 @@
+package mazes.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Maze.Layout values on SHUFFLED_EDGES generation and on
+ * GridSolver, which both index their arrays by the layout's slots. A
+ * 10000 x 10000 maze and its solver take over a gigabyte, far more than
+ * any L3 cache, and a single operation takes seconds, so each is timed
+ * once per iteration. -prof perfnorm shows the cache misses where perf
+ * is available.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LayoutBenchmark {
+
+	private static final MethodHandle NEW_MAZE = Mazes.constructor("Maze", int.class, int.class, "Maze$Algorithm", "Maze$Layout", long.class);
+	private static final MethodHandle REGENERATE = Mazes.method("Maze", "regenerate", void.class, long.class);
+	private static final MethodHandle NEW_SOLVER = Mazes.constructor("GridSolver", "Maze");
+	private static final MethodHandle SOLVE = Mazes.method("GridSolver", "solve", int[].class);
+
+	@Param({ "ROW_MAJOR", "BLOCKED" })
+	public String layout;
+
+	@Param({ "1000", "10000" })
+	public int size;
+
+	private Object maze;
+	private Object solver;
+	private long seed;
+
+	@Setup
+	public void setup() throws Throwable {
+		Object algorithm = Mazes.constant("Maze$Algorithm", "SHUFFLED_EDGES");
+		maze = (Object)NEW_MAZE.invokeExact(size, size, algorithm, Mazes.constant("Maze$Layout", layout), seed++);
+		solver = (Object)NEW_SOLVER.invokeExact(maze);
+	}
+
+	@Benchmark
+	public Object generate() throws Throwable {
+		REGENERATE.invokeExact(maze, seed++);
+		return maze;
+	}
+
+	/**
+	 * Solves the same maze every time, from the top left to the bottom
+	 * right cell.
+	 */
+	@Benchmark
+	public int[] solve() throws Throwable {
+		return (int[])SOLVE.invokeExact(solver);
+	}
+}
@@ -0,0 +1,85 @@
+package mazes.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The maze classes live in the default package, which a named package
+ * cannot import, and JMH will not generate benchmarks in the default
+ * package. The benchmarks reach them through method handles instead.
+ * Kept in static final fields, the handles are constants to the JIT and
+ * are inlined like direct calls.
+ *
+ * Every handle takes and returns objects other than arrays as Object, so
+ * callers use invokeExact with Object in place of the maze types.
+ */
+final class Mazes {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+	private Mazes() {
+	}
+
+	static Class<?> type(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Maze class " + name + " is not on the class path.", e);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static Object constant(String enumType, String name) {
+		return Enum.valueOf((Class)type(enumType), name);
+	}
+
+	static MethodHandle constructor(String className, Object... parameters) {
+		Class<?>[] types = types(parameters);
+		try {
+			MethodHandle handle = LOOKUP.findConstructor(type(className), MethodType.methodType(void.class, types));
+			return handle.asType(erase(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("No constructor " + className + "(" + names(types) + ").", e);
+		}
+	}
+
+	/**
+	 * @param parameters Each is a Class or the name of a maze class
+	 */
+	static MethodHandle method(String className, String name, Class<?> returnType, Object... parameters) {
+		Class<?>[] types = types(parameters);
+		try {
+			MethodHandle handle = LOOKUP.findVirtual(type(className), name, MethodType.methodType(returnType, types));
+			return handle.asType(erase(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("No method " + className + "." + name + "(" + names(types) + ").", e);
+		}
+	}
+
+	// Replaces every reference type but arrays with Object
+	private static MethodType erase(MethodType type) {
+		MethodType erased = type.changeReturnType(erase(type.returnType()));
+		for (int i = 0; i < type.parameterCount(); i++)
+			erased = erased.changeParameterType(i, erase(type.parameterType(i)));
+		return erased;
+	}
+
+	private static Class<?> erase(Class<?> type) {
+		return type.isPrimitive() || type.isArray() ? type : Object.class;
+	}
+
+	private static Class<?>[] types(Object[] parameters) {
+		Class<?>[] types = new Class<?>[parameters.length];
+		for (int i = 0; i < parameters.length; i++)
+			types[i] = parameters[i] instanceof Class ? (Class<?>)parameters[i] : type((String)parameters[i]);
+		return types;
+	}
+
+	private static String names(Class<?>[] types) {
+		StringBuilder s = new StringBuilder();
+		for (Class<?> t : types)
+			s.append(s.length() == 0 ? "" : ", ").append(t.getSimpleName());
+		return s.toString();
+	}
+}
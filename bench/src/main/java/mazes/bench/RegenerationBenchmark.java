@@ -0,0 +1,64 @@
+package mazes.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates maze after maze in place with Maze.regenerate(), and solves
+ * each one with a GridSolver which is reused too. Run with -prof gc:
+ * apart from PARALLEL and TILED, gc.alloc.rate.norm should be the random
+ * generator of each maze plus, when solving, the path returned.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegenerationBenchmark {
+
+	private static final MethodHandle NEW_MAZE = Mazes.constructor("Maze", int.class, int.class, "Maze$Algorithm", long.class);
+	private static final MethodHandle REGENERATE = Mazes.method("Maze", "regenerate", void.class, long.class);
+	private static final MethodHandle NEW_SOLVER = Mazes.constructor("GridSolver", "Maze");
+	private static final MethodHandle SOLVE = Mazes.method("GridSolver", "solve", int[].class);
+
+	@Param({ "RANDOM_WALLS", "SHUFFLED_EDGES", "PARALLEL", "TILED", "BACKTRACKER", "PRIM", "WILSON" })
+	public String algorithm;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	private Object maze;
+	private Object solver;
+	private long seed;
+
+	@Setup
+	public void setup() throws Throwable {
+		maze = (Object)NEW_MAZE.invokeExact(size, size, Mazes.constant("Maze$Algorithm", algorithm), seed++);
+		solver = (Object)NEW_SOLVER.invokeExact(maze);
+	}
+
+	@Benchmark
+	public Object regenerate() throws Throwable {
+		REGENERATE.invokeExact(maze, seed++);
+		return maze;
+	}
+
+	@Benchmark
+	public int[] regenerateAndSolve() throws Throwable {
+		REGENERATE.invokeExact(maze, seed++);
+		return (int[])SOLVE.invokeExact(solver);
+	}
+}
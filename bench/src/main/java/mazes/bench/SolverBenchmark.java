@@ -0,0 +1,73 @@
+package mazes.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solves the mazes in ExampleMazes with each MazeSolver.Strategy. The
+ * directory is taken from the mazes.examples system property, ExampleMazes
+ * in the working directory by default. One solver per trial is reused for
+ * every invocation, as a program solving the same maze again would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+	private static final MethodHandle NEW_SOLVER = Mazes.constructor("MazeSolver", BufferedImage.class, "MazeSolver$Strategy");
+	private static final MethodHandle SOLVE = Mazes.method("MazeSolver", "solve", BufferedImage.class);
+	private static final MethodHandle SOLVE_PATH = Mazes.method("MazeSolver", "solvePath", int[].class);
+
+	@Param({ "5x5", "25x25", "50x50", "5x500", "500x500" })
+	public String maze;
+
+	@Param({ "A_STAR", "BIDIRECTIONAL", "JUMP_POINT" })
+	public String strategy;
+
+	private Object solver;
+
+	@Setup
+	public void setup() throws Throwable {
+		File file = new File(System.getProperty("mazes.examples", "ExampleMazes"), maze + ".bmp");
+		BufferedImage image = ImageIO.read(file);
+		if (image == null)
+			throw new IOException("Cannot read " + file.getAbsolutePath());
+		solver = (Object)NEW_SOLVER.invokeExact((Object)image, Mazes.constant("MazeSolver$Strategy", strategy));
+	}
+
+	/**
+	 * Finds the path and paints it into a copy of the image.
+	 */
+	@Benchmark
+	public Object solve() throws Throwable {
+		return (Object)SOLVE.invokeExact(solver);
+	}
+
+	/**
+	 * Finds the path only.
+	 */
+	@Benchmark
+	public int[] solvePath() throws Throwable {
+		return (int[])SOLVE_PATH.invokeExact(solver);
+	}
+}
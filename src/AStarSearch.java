@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * A* from start towards goal with integer Manhattan f-costs. Only the
+ * pixels a search touched are reset before the next one, so a short
+ * query on a huge maze stays cheap.
+ */
+public class AStarSearch implements SearchStrategy {
+
+	// Directions pointing back towards the start
+	private static final byte UP = MazeSolver.UP, DOWN = MazeSolver.DOWN, LEFT = MazeSolver.LEFT, RIGHT = MazeSolver.RIGHT;
+
+	private PassabilityGrid grid;
+	private int width, height;
+	private OpenSet openSet;
+	private int[] costToHere;
+	private byte[] previous;
+	private long[] closed;
+	private int[] touched;
+	private int numTouched;
+	private int expandedNodes;
+	// Only counted while MazeMetrics.ENABLED
+	private int maxOpenSetSize, reopenedNodes;
+
+	/**
+	 * @param openSet must accept monotone keys, as BucketQueue and
+	 * RadixHeap do
+	 */
+	public AStarSearch(PassabilityGrid grid, OpenSet openSet) {
+		this.grid = grid;
+		this.openSet = openSet;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		int numPixels = width * height;
+		costToHere = new int[numPixels];
+		previous = new byte[numPixels];
+		closed = new long[(numPixels + 63) >>> 6];
+		touched = new int[64];
+		Arrays.fill(costToHere, Integer.MAX_VALUE);
+	}
+
+	public int[] findPath(int start, int goal) {
+		reset();
+		return search(start, goal) ? buildPath(goal) : null;
+	}
+
+	public int getExpandedNodes() {
+		return expandedNodes;
+	}
+
+	public int getMaxOpenSetSize() {
+		return maxOpenSetSize;
+	}
+
+	public int getReopenedNodes() {
+		return reopenedNodes;
+	}
+
+	private void reset() {
+		for (int i = 0; i < numTouched; i++) {
+			int p = touched[i];
+			costToHere[p] = Integer.MAX_VALUE;
+			// Only touched pixels are ever closed
+			closed[p >>> 6] = 0;
+		}
+		numTouched = 0;
+		expandedNodes = 0;
+		maxOpenSetSize = 0;
+		reopenedNodes = 0;
+		openSet.clear();
+	}
+
+	/**
+	 * Each f-cost is computed once when a pixel is pushed. Unit steps and
+	 * a consistent heuristic keep the keys monotone, and the fixed
+	 * neighbour order makes the expansion order deterministic.
+	 * @return true if goal was reached, in which case costToHere and
+	 * previous describe a shortest path to it
+	 */
+	private boolean search(int start, int goal) {
+		int goalX = goal % width;
+		int goalY = goal / width;
+		setCost(start, 0, UP);
+		openSet.push(start, Math.abs(start % width - goalX) + Math.abs(start / width - goalY));
+
+		while (!openSet.isEmpty()) {
+			int current = openSet.pop();
+			if ((closed[current >>> 6] & (1L << current)) != 0) {
+				// A stale copy of a pixel that was pushed again with a lower cost
+				continue;
+			}
+			closed[current >>> 6] |= 1L << current;
+			expandedNodes++;
+			if (current == goal) {
+				// Found the exit
+				return true;
+			}
+
+			int x = current % width;
+			int y = current / width;
+			int newCostHere = costToHere[current] + 1;
+			if (y + 1 < height && grid.isOpen(x, y + 1))
+				relax(current + width, UP, newCostHere, newCostHere + Math.abs(x - goalX) + Math.abs(y + 1 - goalY));
+			if (y > 0 && grid.isOpen(x, y - 1))
+				relax(current - width, DOWN, newCostHere, newCostHere + Math.abs(x - goalX) + Math.abs(y - 1 - goalY));
+			if (x + 1 < width && grid.isOpen(x + 1, y))
+				relax(current + 1, LEFT, newCostHere, newCostHere + Math.abs(x + 1 - goalX) + Math.abs(y - goalY));
+			if (x > 0 && grid.isOpen(x - 1, y))
+				relax(current - 1, RIGHT, newCostHere, newCostHere + Math.abs(x - 1 - goalX) + Math.abs(y - goalY));
+		}
+
+		return false;
+	}
+
+	/**
+	 * @param from The direction of the current pixel as seen from neighbor
+	 */
+	private void relax(int neighbor, byte from, int newCostHere, int estimatedCost) {
+		if (newCostHere < costToHere[neighbor]) {
+			if (MazeMetrics.ENABLED && costToHere[neighbor] != Integer.MAX_VALUE)
+				reopenedNodes++;
+			setCost(neighbor, newCostHere, from);
+			openSet.push(neighbor, estimatedCost);
+			if (MazeMetrics.ENABLED)
+				maxOpenSetSize = Math.max(maxOpenSetSize, openSet.size());
+		}
+	}
+
+	private void setCost(int p, int cost, byte from) {
+		if (costToHere[p] == Integer.MAX_VALUE) {
+			if (numTouched == touched.length)
+				touched = Arrays.copyOf(touched, numTouched * 2);
+			touched[numTouched++] = p;
+		}
+		costToHere[p] = cost;
+		previous[p] = from;
+	}
+
+	/**
+	 * @return The pixels on the path search() found to goal, in order
+	 */
+	private int[] buildPath(int goal) {
+		int[] path = new int[costToHere[goal] + 1];
+		int curr = goal;
+		for (int i = path.length - 1; i > 0; i--) {
+			path[i] = curr;
+			curr += MazeSolver.offset(previous[curr], width);
+		}
+		path[0] = curr;
+		return path;
+	}
+}
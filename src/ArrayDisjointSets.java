@@ -0,0 +1,182 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+public class ArrayDisjointSets implements IntDisjointSets {
+
+	private int[] parent;
+	private byte[] rank;
+	private int numSets;
+	private RandomGenerator random;
+	// Only counted while MazeMetrics.ENABLED
+	private long finds, compressionSteps;
+
+	/**
+	 * Creates size singleton sets {0}, {1}, ... {size - 1}.
+	 * @param size >= 0
+	 */
+	public ArrayDisjointSets(int size) {
+		this(size, new SplittableRandom());
+	}
+
+	/**
+	 * @param random used to break ties between sets of equal rank
+	 */
+	public ArrayDisjointSets(int size, RandomGenerator random) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size cannot be negative.");
+		}
+		parent = new int[size];
+		rank = new byte[size];
+		for (int i = 0; i < size; i++) {
+			parent[i] = i;
+		}
+		numSets = size;
+		this.random = random;
+	}
+
+	public int size() {
+		return parent.length;
+	}
+
+	/**
+	 * Makes every element a singleton set again without reallocating,
+	 * for callers which need a fresh structure of the same size often.
+	 * The find and compression counts start again from 0.
+	 */
+	public void reset() {
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+		}
+		Arrays.fill(rank, (byte)0);
+		numSets = parent.length;
+		finds = 0;
+		compressionSteps = 0;
+	}
+
+	/**
+	 * reset() and break ties with random from now on.
+	 */
+	public void reset(RandomGenerator random) {
+		this.random = random;
+		reset();
+	}
+
+	/**
+	 * Joins two elements and their sets together.
+	 * Replaces the set d1 is a part of and the set d2 is a part of with
+	 * a single set which is the union of the two previous sets.
+	 * @param d1 a valid id
+	 * @param d2 a valid id
+	 * After this operation, find(d1) == find(d2)
+	 */
+	public void union(int d1, int d2) {
+		if (!tryUnion(d1, d2)) {
+			throw new IllegalStateException("Both elements are already in the same set.");
+		}
+	}
+
+	public boolean tryUnion(int d1, int d2) {
+		checkBounds(d1);
+		checkBounds(d2);
+		int root1 = getRoot(d1);
+		int root2 = getRoot(d2);
+		if (root1 == root2) {
+			return false;
+		}
+		if (rank[root1] > rank[root2]) {
+			parent[root2] = root1;
+		} else if (rank[root1] < rank[root2]) {
+			parent[root1] = root2;
+		} else {
+			if (random.nextBoolean()) {
+				int temp = root1;
+				root1 = root2;
+				root2 = temp;
+			}
+			parent[root1] = root2;
+			rank[root2]++;
+		}
+		numSets--;
+		return true;
+	}
+
+	/**
+	 * Find which set "data" is a part of. Will traverse the set tree
+	 * until it finds the root and returns the id of the root.
+	 * @param data a valid id
+	 * @return A unique int identifer for the set "data" is a part of,
+	 * or -1 if data is not a valid id
+	 * find(x) == find(y) iff x and y are part of the same set
+	 */
+	public int find(int data) {
+		if (data < 0 || data >= parent.length) {
+			return -1;
+		}
+		return getRoot(data);
+	}
+
+	public boolean sameSet(int d1, int d2) {
+		checkBounds(d1);
+		checkBounds(d2);
+		return getRoot(d1) == getRoot(d2);
+	}
+
+	public double getAverageDepth() {
+		if (parent.length == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < parent.length; i++) {
+			int s = i;
+			while (parent[s] != s) {
+				s = parent[s];
+				sum++;
+			}
+		}
+		return sum / parent.length;
+	}
+
+	public long getFindCount() {
+		return finds;
+	}
+
+	public long getCompressionSteps() {
+		return compressionSteps;
+	}
+
+	public int getNumberOfSets() {
+		return numSets;
+	}
+
+	/**
+	 * Finds the root of curr and points every element on the way
+	 * directly at it (full path compression).
+	 */
+	private int getRoot(int curr) {
+		int root = curr;
+		int length = 0;
+		while (parent[root] != root) {
+			root = parent[root];
+			length++;
+		}
+		if (MazeMetrics.ENABLED) {
+			finds++;
+			// Every link on the path but the last one to the root is moved
+			compressionSteps += Math.max(length - 1, 0);
+			MazeMetrics.recordFindLength(length);
+		}
+		while (parent[curr] != root) {
+			int next = parent[curr];
+			parent[curr] = root;
+			curr = next;
+		}
+		return root;
+	}
+
+	private void checkBounds(int data) {
+		if (data < 0 || data >= parent.length) {
+			throw new IllegalArgumentException("Both elements must already be in a set.");
+		}
+	}
+}
@@ -0,0 +1,54 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * The recursive backtracker: a random depth-first walk which carves into
+ * a random unvisited neighbour while it can and backs up when it cannot.
+ * Makes long winding corridors with few, short dead ends. The recursion
+ * is an explicit int stack of cells, so no maze is too deep for it, and
+ * nothing is allocated once the stack and visited bits exist.
+ * See Maze.Algorithm.BACKTRACKER.
+ */
+public class BacktrackerGenerator implements MazeGenerator {
+
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int numCells = width * maze.getHeight();
+		GeneratorScratch scratch = maze.scratch();
+		int[] stack = scratch.ints(numCells);
+		long[] visited = scratch.clearedLongs((numCells + 63) >>> 6);
+		int[] neighbors = scratch.neighbors();
+
+		int start = random.nextInt(numCells);
+		stack[0] = start;
+		visited[start >>> 6] |= 1L << start;
+		int top = 1;
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int row = cell / width;
+			int col = cell - row * width;
+			int count = 0;
+			if (row > 0 && !isVisited(visited, cell - width))
+				neighbors[count++] = cell - width;
+			if (col > 0 && !isVisited(visited, cell - 1))
+				neighbors[count++] = cell - 1;
+			if (col + 1 < width && !isVisited(visited, cell + 1))
+				neighbors[count++] = cell + 1;
+			if (cell + width < numCells && !isVisited(visited, cell + width))
+				neighbors[count++] = cell + width;
+			if (count == 0) {
+				top--;
+				continue;
+			}
+			int next = neighbors[count == 1 ? 0 : random.nextInt(count)];
+			maze.openPassage(cell, next);
+			visited[next >>> 6] |= 1L << next;
+			stack[top++] = next;
+		}
+		// Every step carves, nothing is rejected
+		maze.countGeneration(numCells - 1, numCells - 1);
+	}
+
+	private static boolean isVisited(long[] visited, int cell) {
+		return (visited[cell >>> 6] & (1L << cell)) != 0;
+	}
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+/**
+ * Bidirectional A*: one search runs from start towards goal and another
+ * from goal towards start, each with a Manhattan heuristic to the other
+ * end, and the side with the smaller open set is expanded next. Every
+ * time one side reaches a pixel the other has a cost for, the two costs
+ * make a path, and the shortest of those is kept. Once either open set
+ * has no key below that length, no shorter path can be left, because
+ * each side's smallest f-cost bounds every path it has not finished.
+ * Pays off when the two frontiers meet long before either would have
+ * crossed the maze on its own.
+ */
+public class BidirectionalSearch implements SearchStrategy {
+
+	// Directions pointing back towards where a side started
+	private static final byte UP = MazeSolver.UP, DOWN = MazeSolver.DOWN, LEFT = MazeSolver.LEFT, RIGHT = MazeSolver.RIGHT;
+
+	private PassabilityGrid grid;
+	private int width, height;
+	private Side forward, backward;
+	private int[] touched;
+	private int numTouched;
+	private int expandedNodes;
+	// Only counted while MazeMetrics.ENABLED
+	private int maxOpenSetSize, reopenedNodes;
+	private int bestLength;
+	private int meetingPixel;
+
+	/**
+	 * @param forwardSet, backwardSet The open sets of the two sides. They
+	 * must accept monotone keys, as BucketQueue and RadixHeap do.
+	 */
+	public BidirectionalSearch(PassabilityGrid grid, OpenSet forwardSet, OpenSet backwardSet) {
+		this.grid = grid;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		forward = new Side(width * height, forwardSet);
+		backward = new Side(width * height, backwardSet);
+		touched = new int[64];
+	}
+
+	public int[] findPath(int start, int goal) {
+		reset();
+		setCost(forward, start, 0, UP);
+		forward.openSet.push(start, distance(start, goal));
+		setCost(backward, goal, 0, UP);
+		backward.openSet.push(goal, distance(goal, start));
+		if (start == goal) {
+			bestLength = 0;
+			meetingPixel = start;
+		}
+
+		while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+			if (bestLength != Integer.MAX_VALUE
+			    && (forward.openSet.peekKey() >= bestLength || backward.openSet.peekKey() >= bestLength))
+				break;
+			if (forward.openSet.size() <= backward.openSet.size())
+				expand(forward, backward, goal);
+			else
+				expand(backward, forward, start);
+		}
+
+		return meetingPixel < 0 ? null : buildPath();
+	}
+
+	public int getExpandedNodes() {
+		return expandedNodes;
+	}
+
+	public int getMaxOpenSetSize() {
+		return maxOpenSetSize;
+	}
+
+	public int getReopenedNodes() {
+		return reopenedNodes;
+	}
+
+	private void reset() {
+		for (int i = 0; i < numTouched; i++) {
+			int p = touched[i];
+			forward.costToHere[p] = Integer.MAX_VALUE;
+			backward.costToHere[p] = Integer.MAX_VALUE;
+			forward.closed[p >>> 6] = 0;
+			backward.closed[p >>> 6] = 0;
+		}
+		numTouched = 0;
+		forward.openSet.clear();
+		backward.openSet.clear();
+		expandedNodes = 0;
+		maxOpenSetSize = 0;
+		reopenedNodes = 0;
+		bestLength = Integer.MAX_VALUE;
+		meetingPixel = -1;
+	}
+
+	/**
+	 * Expands the next pixel of side, which is searching towards target.
+	 */
+	private void expand(Side side, Side other, int target) {
+		int current = side.openSet.pop();
+		if ((side.closed[current >>> 6] & (1L << current)) != 0) {
+			// A stale copy of a pixel that was pushed again with a lower cost
+			return;
+		}
+		side.closed[current >>> 6] |= 1L << current;
+		expandedNodes++;
+
+		int x = current % width;
+		int y = current / width;
+		int newCostHere = side.costToHere[current] + 1;
+		if (y + 1 < height && grid.isOpen(x, y + 1))
+			relax(side, other, current + width, UP, newCostHere, target);
+		if (y > 0 && grid.isOpen(x, y - 1))
+			relax(side, other, current - width, DOWN, newCostHere, target);
+		if (x + 1 < width && grid.isOpen(x + 1, y))
+			relax(side, other, current + 1, LEFT, newCostHere, target);
+		if (x > 0 && grid.isOpen(x - 1, y))
+			relax(side, other, current - 1, RIGHT, newCostHere, target);
+	}
+
+	/**
+	 * @param from The direction of the current pixel as seen from neighbor
+	 */
+	private void relax(Side side, Side other, int neighbor, byte from, int newCostHere, int target) {
+		if (newCostHere >= side.costToHere[neighbor])
+			return;
+		if (MazeMetrics.ENABLED && side.costToHere[neighbor] != Integer.MAX_VALUE)
+			reopenedNodes++;
+		setCost(side, neighbor, newCostHere, from);
+		side.openSet.push(neighbor, newCostHere + distance(neighbor, target));
+		if (MazeMetrics.ENABLED)
+			maxOpenSetSize = Math.max(maxOpenSetSize, forward.openSet.size() + backward.openSet.size());
+		int otherCost = other.costToHere[neighbor];
+		if (otherCost != Integer.MAX_VALUE && newCostHere + otherCost < bestLength) {
+			bestLength = newCostHere + otherCost;
+			meetingPixel = neighbor;
+		}
+	}
+
+	private void setCost(Side side, int p, int cost, byte from) {
+		if (forward.costToHere[p] == Integer.MAX_VALUE && backward.costToHere[p] == Integer.MAX_VALUE) {
+			if (numTouched == touched.length)
+				touched = Arrays.copyOf(touched, numTouched * 2);
+			touched[numTouched++] = p;
+		}
+		side.costToHere[p] = cost;
+		side.previous[p] = from;
+	}
+
+	private int distance(int p, int q) {
+		return Math.abs(p % width - q % width) + Math.abs(p / width - q / width);
+	}
+
+	/**
+	 * @return The pixels from start to the meeting pixel followed by the
+	 * pixels from there to goal
+	 */
+	private int[] buildPath() {
+		int toStart = forward.costToHere[meetingPixel];
+		int[] path = new int[bestLength + 1];
+		int curr = meetingPixel;
+		for (int i = toStart; i > 0; i--) {
+			path[i] = curr;
+			curr += MazeSolver.offset(forward.previous[curr], width);
+		}
+		path[0] = curr;
+		curr = meetingPixel;
+		for (int i = toStart + 1; i < path.length; i++) {
+			curr += MazeSolver.offset(backward.previous[curr], width);
+			path[i] = curr;
+		}
+		return path;
+	}
+
+	/**
+	 * The arrays of one direction of the search.
+	 */
+	private static class Side {
+		private int[] costToHere;
+		private byte[] previous;
+		private long[] closed;
+		private OpenSet openSet;
+
+		public Side(int numPixels, OpenSet openSet) {
+			this.openSet = openSet;
+			costToHere = new int[numPixels];
+			previous = new byte[numPixels];
+			closed = new long[(numPixels + 63) >>> 6];
+			Arrays.fill(costToHere, Integer.MAX_VALUE);
+		}
+	}
+}
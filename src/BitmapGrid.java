@@ -0,0 +1,165 @@
+import java.awt.image.*;
+
+import java.util.Arrays;
+
+/**
+ * A PassabilityGrid held as one bit per pixel, bit y * width + x of a
+ * long[]. Built from a BufferedImage by reading its raster in bulk, so
+ * no pixel goes through getRGB() one at a time.
+ */
+public class BitmapGrid implements PassabilityGrid {
+
+	private static final int EMPTY_COLOR = 0xFFFFFFFF;
+
+	private int width, height;
+	private long[] bits;
+
+	public BitmapGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		bits = new long[(int)(((long)width * height + 63) >>> 6)];
+	}
+
+	/**
+	 * Creates the grid of a maze image, where exactly the white pixels
+	 * are open.
+	 */
+	public static BitmapGrid fromImage(BufferedImage img) {
+		BitmapGrid grid = new BitmapGrid(img.getWidth(), img.getHeight());
+		grid.read(img);
+		return grid;
+	}
+
+	/**
+	 * Replaces the pixels of this grid with those of another maze image,
+	 * in place.
+	 * @param img The same size as this grid
+	 */
+	public void read(BufferedImage img) {
+		if (img.getWidth() != width || img.getHeight() != height)
+			throw new IllegalArgumentException("The image must be " + width + "x" + height + ".");
+		Arrays.fill(bits, 0);
+		Raster raster = img.getRaster();
+		boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+		if (untranslated && img.getType() == BufferedImage.TYPE_BYTE_BINARY
+		    && raster.getSampleModel() instanceof MultiPixelPackedSampleModel
+		    && ((MultiPixelPackedSampleModel)raster.getSampleModel()).getPixelBitStride() == 1) {
+			readBinary(img);
+		} else if (untranslated && (img.getType() == BufferedImage.TYPE_INT_RGB || img.getType() == BufferedImage.TYPE_INT_ARGB)) {
+			readInts(img);
+		} else if (untranslated && img.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+			readBgr(img);
+		} else {
+			readAny(img);
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isOpen(int x, int y) {
+		long bit = (long)y * width + x;
+		return (bits[(int)(bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	public void setOpen(int x, int y, boolean open) {
+		long bit = (long)y * width + x;
+		if (open)
+			bits[(int)(bit >>> 6)] |= 1L << bit;
+		else
+			bits[(int)(bit >>> 6)] &= ~(1L << bit);
+	}
+
+	/**
+	 * 1 bit per pixel, 8 pixels per byte with the leftmost pixel in the
+	 * high bit. Each byte is turned into 8 grid bits at once.
+	 */
+	private void readBinary(BufferedImage img) {
+		MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel)img.getRaster().getSampleModel();
+		DataBufferByte db = (DataBufferByte)img.getRaster().getDataBuffer();
+		byte[] data = db.getData();
+		int stride = sm.getScanlineStride();
+		int bitOffset = sm.getDataBitOffset();
+		// Which palette entry is white decides whether set bits are open
+		IndexColorModel cm = (IndexColorModel)img.getColorModel();
+		boolean oneIsOpen = cm.getMapSize() > 1 && cm.getRGB(1) == EMPTY_COLOR;
+		boolean zeroIsOpen = cm.getRGB(0) == EMPTY_COLOR;
+		if (!oneIsOpen && !zeroIsOpen)
+			return;
+		int flip = oneIsOpen ? 0 : 0xFF;
+		for (int y = 0; y < height; y++) {
+			long rowStart = (long)db.getOffset() * 8 + (long)y * stride * 8 + bitOffset;
+			for (int x = 0; x < width; x += 8) {
+				long srcBit = rowStart + x;
+				int b = (data[(int)(srcBit >>> 3)] & 0xFF) << 8;
+				if ((srcBit & 7) != 0 && (srcBit >>> 3) + 1 < data.length)
+					b |= data[(int)(srcBit >>> 3) + 1] & 0xFF;
+				b = ((b << (srcBit & 7)) >>> 8) & 0xFF;
+				int count = Math.min(8, width - x);
+				// Reverse so the leftmost pixel ends up in the lowest bit
+				int pixels = ((Integer.reverse(b ^ flip) >>> 24) & ((1 << count) - 1));
+				setBits((long)y * width + x, pixels);
+			}
+		}
+	}
+
+	private void readInts(BufferedImage img) {
+		int[] data = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+		SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel)img.getRaster().getSampleModel();
+		int stride = sm.getScanlineStride();
+		int offset = ((DataBufferInt)img.getRaster().getDataBuffer()).getOffset();
+		int alpha = img.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+		for (int y = 0; y < height; y++) {
+			int row = offset + y * stride;
+			for (int x = 0; x < width; x++) {
+				if ((data[row + x] | alpha) == EMPTY_COLOR)
+					setOpen(x, y, true);
+			}
+		}
+	}
+
+	private void readBgr(BufferedImage img) {
+		DataBufferByte db = (DataBufferByte)img.getRaster().getDataBuffer();
+		byte[] data = db.getData();
+		ComponentSampleModel sm = (ComponentSampleModel)img.getRaster().getSampleModel();
+		int stride = sm.getScanlineStride();
+		int pixelStride = sm.getPixelStride();
+		for (int y = 0; y < height; y++) {
+			int i = db.getOffset() + y * stride;
+			for (int x = 0; x < width; x++, i += pixelStride) {
+				if ((data[i] & data[i + 1] & data[i + 2]) == (byte)0xFF)
+					setOpen(x, y, true);
+			}
+		}
+	}
+
+	/**
+	 * Any other image, converted one row at a time with a bulk getRGB().
+	 */
+	private void readAny(BufferedImage img) {
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			img.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++) {
+				if (row[x] == EMPTY_COLOR)
+					setOpen(x, y, true);
+			}
+		}
+	}
+
+	/**
+	 * ORs up to 8 pixels into the grid starting at bit, lowest bit first.
+	 */
+	private void setBits(long bit, int pixels) {
+		int word = (int)(bit >>> 6);
+		int shift = (int)(bit & 63);
+		bits[word] |= (long)pixels << shift;
+		if (shift > 56 && word + 1 < bits.length)
+			bits[word + 1] |= (long)pixels >>> (64 - shift);
+	}
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a maze as a 1 bit per pixel BMP, the same picture
+ * getMazeImage() draws, as its rows arrive. The image is stored top-down
+ * (negative height), so rows can be written in the order they are
+ * generated. BMP sizes are 32 bit fields, so the file must stay below
+ * 4 GB, which is about 180000 x 180000 cells.
+ */
+public class BmpRowSink implements MazeRowSink {
+
+	private static final int HEADER_SIZE = 14 + 40 + 2 * 4;
+
+	private WritableByteChannel channel;
+	private LineWriter out;
+	private ScanlineEncoder encoder;
+	private byte[] upper, lower;
+	private int padding;
+	private int row;
+
+	/**
+	 * @param channel The channel to write to, closed by finish()
+	 */
+	public BmpRowSink(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public void start(int width, int height) throws IOException {
+		encoder = new ScanlineEncoder(width, height, true);
+		int bytesPerLine = encoder.getBytesPerLine();
+		// Every line is padded to a multiple of 4 bytes
+		long stride = (bytesPerLine + 3L) & ~3L;
+		long imageSize = stride * encoder.getImageHeight();
+		if (HEADER_SIZE + imageSize > 0xFFFFFFFFL)
+			throw new IllegalArgumentException("Maze is too large for a BMP file.");
+		padding = (int)(stride - bytesPerLine);
+		upper = new byte[bytesPerLine];
+		lower = new byte[bytesPerLine];
+		out = new LineWriter(channel, (int)stride);
+		row = 0;
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		// BITMAPFILEHEADER
+		header.put((byte)'B').put((byte)'M');
+		header.putInt((int)(HEADER_SIZE + imageSize));
+		header.putInt(0);
+		header.putInt(HEADER_SIZE);
+		// BITMAPINFOHEADER
+		header.putInt(40);
+		header.putInt(encoder.getImageWidth());
+		header.putInt(-encoder.getImageHeight());
+		header.putShort((short)1);
+		header.putShort((short)1);
+		header.putInt(0); // BI_RGB, no compression
+		header.putInt((int)imageSize);
+		header.putInt(2835).putInt(2835); // 72 DPI
+		header.putInt(2).putInt(2);
+		// Palette: 0 is a wall, 1 is open
+		header.putInt(0x000000);
+		header.putInt(0xFFFFFF);
+		out.write(header.array());
+	}
+
+	public void writeRow(long[] openWalls) throws IOException {
+		encoder.encodeRow(openWalls, row++, upper, lower);
+		out.write(upper, padding);
+		out.write(lower, padding);
+	}
+
+	public void finish() throws IOException {
+		encoder.encodeBottom(upper);
+		out.write(upper, padding);
+		out.close();
+	}
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * A bucket queue (Dial's algorithm) for monotone keys. Buckets are kept
+ * in a ring indexed by key, which grows to cover the spread between the
+ * smallest and largest key, so push and pop are O(1) when keys are close
+ * together, as the f-costs of A* on a grid are. Nodes with equal keys
+ * come out last in, first out.
+ */
+public class BucketQueue implements OpenSet {
+
+	private int[][] buckets;
+	private int[] counts;
+	private int mask;
+	// Every key in the queue is in [minKey, maxKey]
+	private int minKey, maxKey;
+	private int lastPopped;
+	private int size;
+	private boolean cleared = true;
+
+	public BucketQueue() {
+		this(8);
+	}
+
+	/**
+	 * @param keySpread the expected difference between the smallest and
+	 * largest key in the queue at one time
+	 */
+	public BucketQueue(int keySpread) {
+		int numBuckets = Integer.highestOneBit(Math.max(keySpread, 1)) * 2;
+		buckets = new int[numBuckets][];
+		counts = new int[numBuckets];
+		for (int i = 0; i < numBuckets; i++)
+			buckets[i] = new int[16];
+		mask = numBuckets - 1;
+	}
+
+	public void push(int node, int key) {
+		if (!cleared && key < lastPopped)
+			throw new IllegalArgumentException("Keys must not be smaller than the last key popped.");
+		if (size == 0) {
+			// Every bucket is empty, so the ring can start anywhere
+			minKey = key;
+			maxKey = key;
+			cleared = false;
+		} else if (key < minKey || key > maxKey) {
+			int newMin = Math.min(key, minKey);
+			int newMax = Math.max(key, maxKey);
+			if (newMax - newMin > mask)
+				grow(newMax - newMin);
+			minKey = newMin;
+			maxKey = newMax;
+		}
+		int b = key & mask;
+		if (counts[b] == buckets[b].length)
+			buckets[b] = Arrays.copyOf(buckets[b], counts[b] * 2);
+		buckets[b][counts[b]++] = node;
+		size++;
+	}
+
+	public int pop() {
+		int b = findMin();
+		lastPopped = minKey;
+		size--;
+		return buckets[b][--counts[b]];
+	}
+
+	public int peekKey() {
+		findMin();
+		return minKey;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(counts, 0);
+		size = 0;
+		cleared = true;
+	}
+
+	private int findMin() {
+		if (size == 0)
+			throw new IllegalStateException("Queue is empty.");
+		while (counts[minKey & mask] == 0)
+			minKey++;
+		return minKey & mask;
+	}
+
+	/**
+	 * Makes the ring large enough for keys spread apart. Every bucket holds
+	 * a single key, so each bucket can be moved as a whole.
+	 */
+	private void grow(int spread) {
+		int numBuckets = Integer.highestOneBit(spread) * 2;
+		int[][] newBuckets = new int[numBuckets][];
+		int[] newCounts = new int[numBuckets];
+		int newMask = numBuckets - 1;
+		for (int key = minKey; key <= maxKey; key++) {
+			newBuckets[key & newMask] = buckets[key & mask];
+			newCounts[key & newMask] = counts[key & mask];
+		}
+		for (int i = 0; i < numBuckets; i++) {
+			if (newBuckets[i] == null)
+				newBuckets[i] = new int[16];
+		}
+		buckets = newBuckets;
+		counts = newCounts;
+		mask = newMask;
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * Where each cell of a width x height grid is kept in the arrays a Maze,
+ * its generator and GridSolver index by cell: the cell's slot. ROW_MAJOR
+ * slots are row * width + col. BLOCKED slots keep each 8 x 8 block of
+ * cells together, blocks in row-major order and cells row-major inside
+ * their block, so a cell and its neighbours above and below are usually
+ * 8 slots apart instead of a whole row. The grid is padded to whole
+ * blocks, and the padding slots belong to no cell.
+ *
+ * Both are the same arithmetic with a different block size (1 x 1 for
+ * ROW_MAJOR), so moving between neighbouring slots costs a few shifts
+ * and one well predicted branch either way.
+ */
+final class CellLayout {
+
+	// Blocks are 2^BLOCK_SHIFT cells on a side
+	static final int BLOCK_SHIFT = 3;
+
+	private final Maze.Layout layout;
+	private final int width;
+	private final int shift, mask;
+	private final int blocksAcross;
+	// Slots per row of blocks
+	private final int blockRowSlots;
+	private final int size;
+
+	CellLayout(Maze.Layout layout, int width, int height) {
+		this.layout = layout;
+		this.width = width;
+		shift = layout == Maze.Layout.BLOCKED ? BLOCK_SHIFT : 0;
+		mask = (1 << shift) - 1;
+		blocksAcross = (width + mask) >>> shift;
+		long blocksDown = (height + mask) >>> shift;
+		blockRowSlots = blocksAcross << (2 * shift);
+		long size = blocksDown * blockRowSlots;
+		if ((long)blocksAcross << (2 * shift) > Integer.MAX_VALUE || size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("width * height must fit in an int");
+		this.size = (int)size;
+	}
+
+	Maze.Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return The number of slots, including the padding after the last
+	 * cells of a BLOCKED grid
+	 */
+	int size() {
+		return size;
+	}
+
+	int slot(int row, int col) {
+		return (row >>> shift) * blockRowSlots + ((col >>> shift) << (2 * shift)) + ((row & mask) << shift) + (col & mask);
+	}
+
+	/**
+	 * @param cell row * width + col
+	 */
+	int slotOfCell(int cell) {
+		if (shift == 0)
+			return cell;
+		return slot(cell / width, cell % width);
+	}
+
+	/**
+	 * @return row * width + col of the cell in slot
+	 */
+	int cellOfSlot(int slot) {
+		if (shift == 0)
+			return slot;
+		return row(slot) * width + col(slot);
+	}
+
+	int row(int slot) {
+		return ((slot / blockRowSlots) << shift) + ((slot >>> shift) & mask);
+	}
+
+	int col(int slot) {
+		return (((slot % blockRowSlots) >>> (2 * shift)) << shift) + (slot & mask);
+	}
+
+	/**
+	 * The slot of the cell above, which must exist. The same holds for
+	 * south(), west() and east().
+	 */
+	int north(int slot) {
+		if (((slot >>> shift) & mask) != 0)
+			return slot - (1 << shift);
+		return slot - blockRowSlots + (mask << shift);
+	}
+
+	int south(int slot) {
+		if (((slot >>> shift) & mask) != mask)
+			return slot + (1 << shift);
+		return slot + blockRowSlots - (mask << shift);
+	}
+
+	int west(int slot) {
+		if ((slot & mask) != 0)
+			return slot - 1;
+		return slot - (1 << (2 * shift)) + mask;
+	}
+
+	int east(int slot) {
+		if ((slot & mask) != mask)
+			return slot + 1;
+		return slot + (1 << (2 * shift)) - mask;
+	}
+
+	/**
+	 * @return The slots of a row of cells come in runs of this many, one
+	 * run per block the row crosses, each starting at slot(row, col) for
+	 * col a multiple of it
+	 */
+	int runLength() {
+		return shift == 0 ? width : 1 << shift;
+	}
+}
@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free disjoint sets which can be shared between threads.
+ * Roots are linked by a fixed pseudo-random priority of their ids
+ * (randomized linking by index), so a root only ever gets a parent with
+ * a higher priority and a single compareAndSet is enough to link two
+ * trees. find() uses path halving, which only moves pointers further up
+ * the same tree, so it never blocks or retries.
+ */
+public class ConcurrentDisjointSets implements IntDisjointSets {
+
+	private AtomicIntegerArray parent;
+	private LongAdder unions;
+	// Only created while MazeMetrics.ENABLED
+	private LongAdder finds, compressionSteps;
+
+	/**
+	 * Creates size singleton sets {0}, {1}, ... {size - 1}.
+	 * @param size >= 0
+	 */
+	public ConcurrentDisjointSets(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size cannot be negative.");
+		}
+		parent = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			parent.set(i, i);
+		}
+		unions = new LongAdder();
+		if (MazeMetrics.ENABLED) {
+			finds = new LongAdder();
+			compressionSteps = new LongAdder();
+		}
+	}
+
+	public int size() {
+		return parent.length();
+	}
+
+	/**
+	 * Joins two elements and their sets together.
+	 * @param d1 a valid id
+	 * @param d2 a valid id
+	 * After this operation, find(d1) == find(d2)
+	 */
+	public void union(int d1, int d2) {
+		if (!tryUnion(d1, d2)) {
+			throw new IllegalStateException("Both elements are already in the same set.");
+		}
+	}
+
+	/**
+	 * Exactly one of several threads calling tryUnion() on the same two
+	 * sets will see true.
+	 */
+	public boolean tryUnion(int d1, int d2) {
+		checkBounds(d1);
+		checkBounds(d2);
+		while (true) {
+			int root1 = getRoot(d1);
+			int root2 = getRoot(d2);
+			if (root1 == root2) {
+				return false;
+			}
+			if (priority(root1) > priority(root2)) {
+				int temp = root1;
+				root1 = root2;
+				root2 = temp;
+			}
+			// Fails if another thread linked root1 first; retry from the new roots
+			if (parent.compareAndSet(root1, root1, root2)) {
+				unions.increment();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Find which set "data" is a part of. The result may be out of date
+	 * as soon as it is returned if other threads are joining sets.
+	 * @param data a valid id
+	 * @return A unique int identifer for the set "data" is a part of,
+	 * or -1 if data is not a valid id
+	 */
+	public int find(int data) {
+		if (data < 0 || data >= parent.length()) {
+			return -1;
+		}
+		return getRoot(data);
+	}
+
+	public boolean sameSet(int d1, int d2) {
+		checkBounds(d1);
+		checkBounds(d2);
+		while (true) {
+			int root1 = getRoot(d1);
+			int root2 = getRoot(d2);
+			if (root1 == root2) {
+				return true;
+			}
+			// root1 was still a root after root2 was found, so the sets
+			// really were different at that point
+			if (parent.get(root1) == root1) {
+				return false;
+			}
+		}
+	}
+
+	public double getAverageDepth() {
+		int size = parent.length();
+		if (size == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			int s = i;
+			while (parent.get(s) != s) {
+				s = parent.get(s);
+				sum++;
+			}
+		}
+		return sum / size;
+	}
+
+	public long getFindCount() {
+		return finds == null ? 0 : finds.sum();
+	}
+
+	public long getCompressionSteps() {
+		return compressionSteps == null ? 0 : compressionSteps.sum();
+	}
+
+	public int getNumberOfSets() {
+		return (int)(parent.length() - unions.sum());
+	}
+
+	private int getRoot(int curr) {
+		int length = 0;
+		int halved = 0;
+		while (true) {
+			int next = parent.get(curr);
+			if (next == curr) {
+				if (MazeMetrics.ENABLED) {
+					finds.increment();
+					compressionSteps.add(halved);
+					MazeMetrics.recordFindLength(length);
+				}
+				return curr;
+			}
+			int nextNext = parent.get(next);
+			length++;
+			if (next != nextNext) {
+				// Path halving, losing this race to another thread is harmless
+				if (parent.compareAndSet(curr, next, nextNext))
+					halved++;
+				length++;
+			}
+			curr = nextNext;
+		}
+	}
+
+	/**
+	 * A bijective mix of the id, so priorities are distinct and do not
+	 * follow the grid order of the ids.
+	 */
+	private static int priority(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void checkBounds(int data) {
+		if (data < 0 || data >= parent.length()) {
+			throw new IllegalArgumentException("Both elements must already be in a set.");
+		}
+	}
+}
@@ -0,0 +1,277 @@
+import java.util.Arrays;
+
+/**
+ * A maze image reduced to its topology. Dead ends are filled in until
+ * none are left, except at the protected terminal pixels, and what is
+ * left is contracted into a graph: junctions and terminals become nodes,
+ * and the corridors between them become edges weighted by their length.
+ * Searching this graph touches a node per junction instead of every
+ * pixel, and a path found in it is expanded back into pixels by walking
+ * its corridors.
+ */
+public class CorridorGraph {
+
+	// Per pixel state in filled. A filled pixel stores the direction of the
+	// neighbour that was still open when it was filled, if there was one.
+	private static final byte OPEN = 0, UP = 1, DOWN = 2, LEFT = 3, RIGHT = 4, FILLED = 5;
+
+	private PassabilityGrid grid;
+	private int width, height;
+	private byte[] filled;
+
+	// Nodes in increasing pixel order, so they can be found by binary search
+	private int[] nodePixels;
+	// Edges of node i are edgeStart[i] .. edgeStart[i + 1] - 1
+	private int[] edgeStart;
+	private int[] edgeTarget;
+	private int[] edgeLength;
+	private byte[] edgeDir;
+
+	/**
+	 * @param terminals pixels (y * width + x) which must stay in the graph,
+	 * typically the entrance and exit of the maze
+	 */
+	public CorridorGraph(PassabilityGrid grid, int... terminals) {
+		this.grid = grid;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		if ((long)width * height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Maze image is too large to reduce.");
+		long[] isTerminal = new long[(width * height + 63) >>> 6];
+		for (int t : terminals) {
+			if (t < 0 || t >= width * height || !grid.isOpen(t % width, t / width))
+				throw new IllegalArgumentException("Terminals must be open pixels.");
+			isTerminal[t >>> 6] |= 1L << t;
+		}
+		byte[] degree = fillDeadEnds(isTerminal);
+		buildGraph(degree, isTerminal);
+	}
+
+	public int getNodeCount() {
+		return nodePixels.length;
+	}
+
+	/**
+	 * @return The number of edges, counting each corridor once
+	 */
+	public int getEdgeCount() {
+		return edgeTarget.length / 2;
+	}
+
+	/**
+	 * @return true if pixel is a junction or terminal of the graph
+	 */
+	public boolean isNode(int pixel) {
+		return Arrays.binarySearch(nodePixels, pixel) >= 0;
+	}
+
+	/**
+	 * Finds a shortest path between two nodes with Dijkstra's algorithm on
+	 * the graph.
+	 * @param from a node pixel, see isNode()
+	 * @param to a node pixel
+	 * @return The pixels on the path from "from" to "to" inclusive, or
+	 * null if there is none
+	 */
+	public int[] findPath(int from, int to) {
+		int source = Arrays.binarySearch(nodePixels, from);
+		int target = Arrays.binarySearch(nodePixels, to);
+		if (source < 0 || target < 0)
+			throw new IllegalArgumentException("Both pixels must be nodes of the graph.");
+		int numNodes = nodePixels.length;
+		int[] distance = new int[numNodes];
+		int[] previousNode = new int[numNodes];
+		int[] previousEdge = new int[numNodes];
+		Arrays.fill(distance, Integer.MAX_VALUE);
+		OpenSet openSet = new RadixHeap();
+		distance[source] = 0;
+		openSet.push(source, 0);
+		while (!openSet.isEmpty()) {
+			int key = openSet.peekKey();
+			int node = openSet.pop();
+			if (key > distance[node])
+				continue;
+			if (node == target)
+				return expandPath(source, target, previousNode, previousEdge, distance[target]);
+			for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+				int newDistance = key + edgeLength[e];
+				int next = edgeTarget[e];
+				if (newDistance < distance[next]) {
+					distance[next] = newDistance;
+					previousNode[next] = node;
+					previousEdge[next] = e;
+					openSet.push(next, newDistance);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Repeatedly fills open pixels with at most one open neighbour.
+	 * @return The number of open neighbours of every pixel afterwards
+	 */
+	private byte[] fillDeadEnds(long[] isTerminal) {
+		int numPixels = width * height;
+		filled = new byte[numPixels];
+		byte[] degree = new byte[numPixels];
+		int[] deadEnds = new int[64];
+		int numDeadEnds = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int p = y * width + x;
+				if (!grid.isOpen(x, y)) {
+					filled[p] = FILLED;
+					continue;
+				}
+				degree[p] = (byte)((y > 0 && grid.isOpen(x, y - 1) ? 1 : 0) + (y + 1 < height && grid.isOpen(x, y + 1) ? 1 : 0)
+				    + (x > 0 && grid.isOpen(x - 1, y) ? 1 : 0) + (x + 1 < width && grid.isOpen(x + 1, y) ? 1 : 0));
+				if (degree[p] <= 1 && (isTerminal[p >>> 6] & (1L << p)) == 0) {
+					if (numDeadEnds == deadEnds.length)
+						deadEnds = Arrays.copyOf(deadEnds, numDeadEnds * 2);
+					deadEnds[numDeadEnds++] = p;
+				}
+			}
+		}
+
+		while (numDeadEnds > 0) {
+			int p = deadEnds[--numDeadEnds];
+			filled[p] = FILLED;
+			for (byte dir = UP; dir <= RIGHT; dir++) {
+				int neighbor = step(p, dir);
+				if (neighbor >= 0 && filled[neighbor] == OPEN) {
+					// The only way out of p, which is now one step shorter
+					filled[p] = dir;
+					if (--degree[neighbor] == 1 && (isTerminal[neighbor >>> 6] & (1L << neighbor)) == 0) {
+						if (numDeadEnds == deadEnds.length)
+							deadEnds = Arrays.copyOf(deadEnds, numDeadEnds * 2);
+						deadEnds[numDeadEnds++] = neighbor;
+					}
+				}
+			}
+		}
+		return degree;
+	}
+
+	private void buildGraph(byte[] degree, long[] isTerminal) {
+		int numPixels = width * height;
+		int numNodes = 0;
+		for (int p = 0; p < numPixels; p++) {
+			if (isNodePixel(p, degree, isTerminal))
+				numNodes++;
+		}
+		nodePixels = new int[numNodes];
+		edgeStart = new int[numNodes + 1];
+		int numEdges = 0;
+		for (int p = 0, i = 0; p < numPixels; p++) {
+			if (isNodePixel(p, degree, isTerminal)) {
+				nodePixels[i++] = p;
+				numEdges += degree[p];
+			}
+		}
+
+		edgeTarget = new int[numEdges];
+		edgeLength = new int[numEdges];
+		edgeDir = new byte[numEdges];
+		int e = 0;
+		for (int i = 0; i < numNodes; i++) {
+			edgeStart[i] = e;
+			for (byte dir = UP; dir <= RIGHT; dir++) {
+				int p = step(nodePixels[i], dir);
+				if (p < 0 || filled[p] != OPEN)
+					continue;
+				// Follow the corridor until it reaches the next node
+				int length = 1;
+				byte cameFrom = opposite(dir);
+				while (!isNodePixel(p, degree, isTerminal)) {
+					byte next = UP;
+					while (next == cameFrom || step(p, next) < 0 || filled[step(p, next)] != OPEN)
+						next++;
+					p = step(p, next);
+					cameFrom = opposite(next);
+					length++;
+				}
+				int target = Arrays.binarySearch(nodePixels, p);
+				if (target == i)
+					continue; // A loop back to the same node never shortens a path
+				edgeTarget[e] = target;
+				edgeLength[e] = length;
+				edgeDir[e] = dir;
+				e++;
+			}
+		}
+		edgeStart[numNodes] = e;
+		if (e < numEdges) {
+			edgeTarget = Arrays.copyOf(edgeTarget, e);
+			edgeLength = Arrays.copyOf(edgeLength, e);
+			edgeDir = Arrays.copyOf(edgeDir, e);
+		}
+	}
+
+	private boolean isNodePixel(int p, byte[] degree, long[] isTerminal) {
+		return filled[p] == OPEN && (degree[p] != 2 || (isTerminal[p >>> 6] & (1L << p)) != 0);
+	}
+
+	/**
+	 * Walks the edges on the path back from target and writes out every
+	 * pixel of their corridors.
+	 */
+	private int[] expandPath(int source, int target, int[] previousNode, int[] previousEdge, int length) {
+		int[] path = new int[length + 1];
+		int end = length;
+		for (int node = target; node != source;) {
+			int e = previousEdge[node];
+			int from = previousNode[node];
+			// Walk the corridor from its start and copy it into place
+			int start = end - edgeLength[e];
+			int p = nodePixels[from];
+			byte dir = edgeDir[e];
+			for (int i = start; i < end; i++) {
+				path[i] = p;
+				p = step(p, dir);
+				byte cameFrom = opposite(dir);
+				if (i + 1 < end) {
+					dir = UP;
+					while (dir == cameFrom || step(p, dir) < 0 || filled[step(p, dir)] != OPEN)
+						dir++;
+				}
+			}
+			end = start;
+			node = from;
+		}
+		path[0] = nodePixels[source];
+		path[length] = nodePixels[target];
+		return path;
+	}
+
+	/**
+	 * @return The pixel one step from p in direction dir, or -1 if that is
+	 * outside the image
+	 */
+	private int step(int p, byte dir) {
+		int x = p % width;
+		switch (dir) {
+			case UP:
+				return p >= width ? p - width : -1;
+			case DOWN:
+				return p + width < width * height ? p + width : -1;
+			case LEFT:
+				return x > 0 ? p - 1 : -1;
+			default:
+				return x + 1 < width ? p + 1 : -1;
+		}
+	}
+
+	private static byte opposite(byte dir) {
+		switch (dir) {
+			case UP:
+				return DOWN;
+			case DOWN:
+				return UP;
+			case LEFT:
+				return RIGHT;
+			default:
+				return LEFT;
+		}
+	}
+}
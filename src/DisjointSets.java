@@ -27,6 +27,24 @@ public interface DisjointSets<E> {
 
 	public double getAverageDepth();
 
+	/**
+	 * @return The number of finds made so far, including the ones inside
+	 * union() and sameSet(). Only counted while MazeMetrics.ENABLED,
+	 * otherwise 0, and always 0 for implementations which do not count.
+	 */
+	public default long getFindCount() {
+		return 0;
+	}
+
+	/**
+	 * @return The number of parent links moved closer to their root by
+	 * path compression so far. Only counted while MazeMetrics.ENABLED,
+	 * otherwise 0, and always 0 for implementations which do not count.
+	 */
+	public default long getCompressionSteps() {
+		return 0;
+	}
+
 	public int getNumberOfSets();
 
 	public boolean sameSet(E d1, E d2);
@@ -0,0 +1,82 @@
+/**
+ * Numbers the elements of a DisjointSets 0, 1, 2, ... in the order they
+ * are added. An open-addressing hash table: the elements and their ids
+ * sit in two parallel arrays and a lookup probes linearly from the
+ * element's hash, so it reads one or two neighbouring slots of flat
+ * arrays instead of walking HashMap's nodes. Kept at most half full.
+ */
+final class ElementIds<E> {
+
+	private Object[] keys;
+	private int[] ids;
+	private int size;
+	// Hashes are spread by multiplying, then the top bits pick the slot
+	private int shift;
+
+	ElementIds() {
+		keys = new Object[16];
+		ids = new int[16];
+		shift = 32 - 4;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return The id of key, or -1 if it has none
+	 */
+	int get(Object key) {
+		if (key == null)
+			return -1;
+		int mask = keys.length - 1;
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			Object k = keys[i];
+			if (k == null)
+				return -1;
+			if (k == key || k.equals(key))
+				return ids[i];
+		}
+	}
+
+	/**
+	 * Gives key the next id, size(), unless it already has one.
+	 * @param key != null
+	 * @return The id key already had, or -1 if it was added
+	 */
+	int add(E key) {
+		if (2 * (size + 1) > keys.length)
+			grow();
+		int mask = keys.length - 1;
+		int i = slot(key);
+		for (Object k; (k = keys[i]) != null; i = (i + 1) & mask) {
+			if (k == key || k.equals(key))
+				return ids[i];
+		}
+		keys[i] = key;
+		ids[i] = size++;
+		return -1;
+	}
+
+	private int slot(Object key) {
+		return (key.hashCode() * 0x9E3779B9) >>> shift;
+	}
+
+	private void grow() {
+		Object[] oldKeys = keys;
+		int[] oldIds = ids;
+		keys = new Object[oldKeys.length * 2];
+		ids = new int[oldIds.length * 2];
+		shift--;
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] == null)
+				continue;
+			int i = slot(oldKeys[j]);
+			while (keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			ids[i] = oldIds[j];
+		}
+	}
+}
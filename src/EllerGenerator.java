@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates perfect mazes row by row with Eller's algorithm and hands
+ * every row to a MazeRowSink as soon as it is finished. Only the current
+ * row is kept: a disjoint sets structure over its columns says which
+ * cells are already connected through the rows above, so memory is
+ * O(width) however tall the maze is.
+ */
+public class EllerGenerator {
+
+	private int width, height;
+	private RandomGenerator random;
+
+	public EllerGenerator(int width, int height) {
+		this(width, height, new SplittableRandom());
+	}
+
+	/**
+	 * Creates a generator which writes the same maze every time it is
+	 * created with the same size and seed.
+	 */
+	public EllerGenerator(int width, int height, long seed) {
+		this(width, height, new SplittableRandom(seed));
+	}
+
+	public EllerGenerator(int width, int height, RandomGenerator random) {
+		if (width < 2 || height < 2)
+			throw new IllegalArgumentException("width and height must be >= 2");
+		if (width > Integer.MAX_VALUE / Maze.DIR_COUNT - 64)
+			throw new IllegalArgumentException("width is too large");
+		this.width = width;
+		this.height = height;
+		this.random = random;
+	}
+
+	/**
+	 * Generates the maze and writes it to sink, calling start(), then
+	 * writeRow() for every row, then finish().
+	 */
+	public void generate(MazeRowSink sink) throws IOException {
+		int numWords = (width * Maze.DIR_COUNT + 63) >>> 6;
+		long[] row = new long[numWords];
+		long[] nextRow = new long[numWords];
+		ArrayDisjointSets sets = new ArrayDisjointSets(width, random);
+		int[] roots = new int[width];
+		int[] remaining = new int[width];
+		// Per set, the first column of the next row it extends down into
+		int[] firstBelow = new int[width];
+		int[] joinTo = new int[width];
+
+		sink.start(width, height);
+		for (int r = 0; r < height; r++) {
+			boolean lastRow = r == height - 1;
+			// Join neighbours from different sets at random, and all of
+			// them in the last row so everything ends up connected
+			for (int c = 1; c < width; c++) {
+				if ((lastRow || random.nextBoolean()) && sets.tryUnion(c - 1, c))
+					setBit(row, c, Maze.WEST);
+			}
+			sink.writeRow(row);
+			if (lastRow)
+				break;
+
+			// Extend every set down at least once
+			Arrays.fill(nextRow, 0);
+			Arrays.fill(remaining, 0);
+			Arrays.fill(firstBelow, -1);
+			for (int c = 0; c < width; c++) {
+				roots[c] = sets.find(c);
+				remaining[roots[c]]++;
+			}
+			for (int c = 0; c < width; c++) {
+				int root = roots[c];
+				remaining[root]--;
+				joinTo[c] = -1;
+				if (random.nextBoolean() || (remaining[root] == 0 && firstBelow[root] < 0)) {
+					setBit(nextRow, c, Maze.NORTH);
+					if (firstBelow[root] < 0)
+						firstBelow[root] = c;
+					else
+						joinTo[c] = firstBelow[root];
+				}
+			}
+
+			// Cells below a set stay in it, every other cell starts a new one
+			sets.reset();
+			for (int c = 0; c < width; c++) {
+				if (joinTo[c] >= 0)
+					sets.union(c, joinTo[c]);
+			}
+			long[] temp = row;
+			row = nextRow;
+			nextRow = temp;
+		}
+		sink.finish();
+	}
+
+	private static void setBit(long[] row, int col, int dir) {
+		int bit = col * Maze.DIR_COUNT + dir;
+		row[bit >>> 6] |= 1L << bit;
+	}
+}
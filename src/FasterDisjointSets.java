@@ -1,15 +1,38 @@
 import java.util.*;
+import java.util.random.RandomGenerator;
 
+/**
+ * Union by rank with path halving over elements of any type. Every
+ * element is numbered by an ElementIds table as it is added, and the
+ * forest lives in parallel parent and rank arrays indexed by that id, so
+ * each operation looks up each of its elements exactly once. OfInt and
+ * OfLong do the same for int and long elements without boxing them.
+ */
 public class FasterDisjointSets<E> implements DisjointSets<E> {
 
-	private HashMap<E, SetElement<E>> elements;
-	private SetIDGenerator idGen;
+	private ElementIds<E> elements;
+	// parent[id] == id for the root of a set
+	private int[] parent;
+	private int[] rank;
+	private int size;
 	private int numSets;
+	// Only counted while MazeMetrics.ENABLED
+	private long finds, compressionSteps;
+	private RandomGenerator random;
 
 	public FasterDisjointSets() {
-		elements = new HashMap<>();
-		idGen = new SetIDGenerator();
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * @param random used to break ties between sets of equal rank
+	 */
+	public FasterDisjointSets(RandomGenerator random) {
+		elements = new ElementIds<>();
+		parent = new int[16];
+		rank = new int[16];
 		numSets = 0;
+		this.random = random;
 	}
 
 	public FasterDisjointSets(Collection<E> objs) {
@@ -27,11 +50,10 @@ public class FasterDisjointSets<E> implements DisjointSets<E> {
 	public void makeSet(E data) {
 		if (data == null) {
 			throw new IllegalArgumentException("Cannot add null elements to a set.");
-		} else if (elements.containsKey(data)) {
+		} else if (elements.add(data) >= 0) {
 			throw new IllegalArgumentException("Data element is already in a set.");
 		}
-		elements.put(data, new SetElement<E>(data, idGen.getNextID()));
-		numSets++;
+		addSet();
 	}
 
 	/**
@@ -43,28 +65,7 @@ public class FasterDisjointSets<E> implements DisjointSets<E> {
 	 * After this operation, find(d1) == find(d2)
 	 */
 	public void union(E d1, E d2) {
-		if (!elements.containsKey(d1) || !elements.containsKey(d2)) {
-			throw new IllegalArgumentException("Both elements must already be in a set.");
-		}
-		SetElement<E> root1 = getRoot(elements.get(d1));
-		SetElement<E> root2 = getRoot(elements.get(d2));
-		if (root1 == root2) {
-			throw new IllegalStateException("Both elements are already in the same set.");
-		}
-		if (root1.rank > root2.rank) {
-			root2.parent = root1;
-		} else if (root1.rank < root2.rank) {
-			root1.parent = root2;
-		} else {
-			if (Math.random() < 0.5) {
-				SetElement<E> temp = root1;
-				root1 = root2;
-				root2 = temp;
-			}
-			root1.parent = root2;
-			root2.rank++;
-		}
-		numSets--;
+		unionIds(elements.get(d1), elements.get(d2));
 	}
 
 	/**
@@ -75,11 +76,7 @@ public class FasterDisjointSets<E> implements DisjointSets<E> {
 	 * find(x) == find(y) iff x and y are part of the same set
 	 */
 	public int find(E data) {
-		if (!elements.containsKey(data)) {
-			return -1;
-		}
-		SetElement<E> root = getRoot(elements.get(data));
-		return root.id;
+		return findId(elements.get(data));
 	}
 
 	public boolean sameSet(E d1, E d2) {
@@ -87,55 +84,215 @@ public class FasterDisjointSets<E> implements DisjointSets<E> {
 	}
 
 	public double getAverageDepth() {
-		if (elements.size() == 0) {
+		if (size == 0) {
 			return 0;
 		}
 		double sum = 0;
-		for (SetElement<E> s : elements.values()) {
-			while (s.parent != null) {
-				s = s.parent;
+		for (int i = 0; i < size; i++) {
+			int s = i;
+			while (parent[s] != s) {
+				s = parent[s];
 				sum++;
 			}
 		}
-		return sum / elements.size();
+		return sum / size;
+	}
+
+	public long getFindCount() {
+		return finds;
+	}
+
+	public long getCompressionSteps() {
+		return compressionSteps;
 	}
 
 	public int getNumberOfSets() {
 		return numSets;
 	}
 
-	private SetElement<E> getRoot(SetElement<E> curr) {
-		while (curr.parent != null) {
-			SetElement<E> next = curr.parent;
-			if (curr.parent.parent != null)
-				curr.parent = curr.parent.parent;
+	/**
+	 * Makes the next id a singleton set, once its element has been given
+	 * that id.
+	 */
+	private void addSet() {
+		if (size == parent.length) {
+			parent = Arrays.copyOf(parent, size * 2);
+			rank = Arrays.copyOf(rank, size * 2);
+		}
+		parent[size] = size;
+		size++;
+		numSets++;
+	}
+
+	/**
+	 * union() of the elements with ids id1 and id2, -1 for an element
+	 * which is in no set.
+	 */
+	private void unionIds(int id1, int id2) {
+		if (id1 < 0 || id2 < 0) {
+			throw new IllegalArgumentException("Both elements must already be in a set.");
+		}
+		int root1 = getRoot(id1);
+		int root2 = getRoot(id2);
+		if (root1 == root2) {
+			throw new IllegalStateException("Both elements are already in the same set.");
+		}
+		if (rank[root1] > rank[root2]) {
+			parent[root2] = root1;
+		} else if (rank[root1] < rank[root2]) {
+			parent[root1] = root2;
+		} else {
+			if (random.nextBoolean()) {
+				int temp = root1;
+				root1 = root2;
+				root2 = temp;
+			}
+			parent[root1] = root2;
+			rank[root2]++;
+		}
+		numSets--;
+	}
+
+	/**
+	 * @return The id of the root of the set of the element with id, or
+	 * -1 if id is -1
+	 */
+	private int findId(int id) {
+		return id < 0 ? -1 : getRoot(id);
+	}
+
+	private int getRoot(int curr) {
+		int length = 0;
+		while (parent[curr] != curr) {
+			int next = parent[curr];
+			if (parent[next] != next) {
+				parent[curr] = parent[next];
+				if (MazeMetrics.ENABLED)
+					compressionSteps++;
+			}
 			curr = next;
+			length++;
+		}
+		if (MazeMetrics.ENABLED) {
+			finds++;
+			MazeMetrics.recordFindLength(length);
 		}
 		return curr;
 	}
 
-	private static class SetElement<E> {
-		private E data;
-		private int id;
-		private int rank;
-		private SetElement<E> parent;
+	/**
+	 * FasterDisjointSets of ints. The int methods never box their
+	 * arguments; the Integer ones of DisjointSets unbox them.
+	 */
+	public static class OfInt extends FasterDisjointSets<Integer> {
+		private final LongIds ints = new LongIds();
+
+		public OfInt() {
+			super();
+		}
+
+		public OfInt(RandomGenerator random) {
+			super(random);
+		}
+
+		public void makeSet(int data) {
+			if (ints.add(data) >= 0) {
+				throw new IllegalArgumentException("Data element is already in a set.");
+			}
+			super.addSet();
+		}
 
-		public SetElement(E data, int setID) {
-			this.data = data;
-			this.id = setID;
-			this.parent = null;
-			this.rank = 0;
+		public void union(int d1, int d2) {
+			super.unionIds(ints.get(d1), ints.get(d2));
 		}
 
-		public String toString() {
-			return "{" + data + ", " + parent + "}";
+		public int find(int data) {
+			return super.findId(ints.get(data));
+		}
+
+		public boolean sameSet(int d1, int d2) {
+			return find(d1) == find(d2);
+		}
+
+		@Override
+		public void makeSet(Integer data) {
+			if (data == null) {
+				throw new IllegalArgumentException("Cannot add null elements to a set.");
+			}
+			makeSet(data.intValue());
+		}
+
+		@Override
+		public void union(Integer d1, Integer d2) {
+			super.unionIds(d1 == null ? -1 : ints.get(d1), d2 == null ? -1 : ints.get(d2));
+		}
+
+		@Override
+		public int find(Integer data) {
+			return data == null ? -1 : find(data.intValue());
+		}
+
+		@Override
+		public boolean sameSet(Integer d1, Integer d2) {
+			return find(d1) == find(d2);
 		}
 	}
 
-	private class SetIDGenerator {
-		int currID;
-		private int getNextID() {
-			return currID++;
+	/**
+	 * FasterDisjointSets of longs. The long methods never box their
+	 * arguments; the Long ones of DisjointSets unbox them.
+	 */
+	public static class OfLong extends FasterDisjointSets<Long> {
+		private final LongIds longs = new LongIds();
+
+		public OfLong() {
+			super();
+		}
+
+		public OfLong(RandomGenerator random) {
+			super(random);
+		}
+
+		public void makeSet(long data) {
+			if (longs.add(data) >= 0) {
+				throw new IllegalArgumentException("Data element is already in a set.");
+			}
+			super.addSet();
+		}
+
+		public void union(long d1, long d2) {
+			super.unionIds(longs.get(d1), longs.get(d2));
+		}
+
+		public int find(long data) {
+			return super.findId(longs.get(data));
+		}
+
+		public boolean sameSet(long d1, long d2) {
+			return find(d1) == find(d2);
+		}
+
+		@Override
+		public void makeSet(Long data) {
+			if (data == null) {
+				throw new IllegalArgumentException("Cannot add null elements to a set.");
+			}
+			makeSet(data.longValue());
+		}
+
+		@Override
+		public void union(Long d1, Long d2) {
+			super.unionIds(d1 == null ? -1 : longs.get(d1), d2 == null ? -1 : longs.get(d2));
+		}
+
+		@Override
+		public int find(Long data) {
+			return data == null ? -1 : find(data.longValue());
+		}
+
+		@Override
+		public boolean sameSet(Long d1, Long d2) {
+			return find(d1) == find(d2);
 		}
 	}
 }
@@ -0,0 +1,70 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The arrays a MazeGenerator works in. A Maze which is regenerated keeps
+ * one, so the next generation reuses the arrays of the last instead of
+ * allocating them again. Every method hands back the array it handed
+ * out before if that is large enough. Only one generation at a time may
+ * use it.
+ */
+class GeneratorScratch {
+
+	private int[] ints;
+	private long[] longs;
+	private byte[] bytes;
+	private int[] neighbors;
+	private ArrayDisjointSets sets;
+
+	/**
+	 * @return At least length ints, with any contents
+	 */
+	int[] ints(int length) {
+		if (ints == null || ints.length < length)
+			ints = new int[length];
+		return ints;
+	}
+
+	/**
+	 * @return At least length longs, the first length of them 0
+	 */
+	long[] clearedLongs(int length) {
+		if (longs == null || longs.length < length)
+			longs = new long[length];
+		else
+			Arrays.fill(longs, 0, length, 0);
+		return longs;
+	}
+
+	/**
+	 * @return At least length bytes, the first length of them 0
+	 */
+	byte[] clearedBytes(int length) {
+		if (bytes == null || bytes.length < length)
+			bytes = new byte[length];
+		else
+			Arrays.fill(bytes, 0, length, (byte)0);
+		return bytes;
+	}
+
+	/**
+	 * @return Room for the up to four neighbours of a cell, with any
+	 * contents
+	 */
+	int[] neighbors() {
+		if (neighbors == null)
+			neighbors = new int[4];
+		return neighbors;
+	}
+
+	/**
+	 * @return size singleton sets which break ties with random
+	 */
+	ArrayDisjointSets disjointSets(int size, RandomGenerator random) {
+		if (sets == null || sets.size() != size)
+			sets = new ArrayDisjointSets(size, random);
+		else
+			sets.reset(random);
+		return sets;
+	}
+}
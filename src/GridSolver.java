@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * A* search directly on the walls of a Maze. Cells are numbered
+ * row * width + col, and all per-cell state lives in arrays which are
+ * allocated once per solver and reused by every solve. The arrays are
+ * indexed by the slots of the maze's Layout, so a BLOCKED maze keeps
+ * the state of neighbouring cells close together. Instead of
+ * clearing them, each solve stamps the cells it reaches with its own
+ * epoch, and a cell whose stamp is older has not been reached yet. So
+ * a solve costs only the cells it visits, and solving a maze again
+ * after Maze.regenerate() or setMaze() allocates nothing but the path.
+ */
+public class GridSolver {
+
+	private static final byte NORTH = 0, SOUTH = 1, WEST = 2, EAST = 3;
+
+	private Maze maze;
+	private CellLayout cells;
+	private int width, height;
+
+	// Only valid for cells stamped with the epoch of this solve
+	private int[] costToHere;
+	// The direction of the cell each cell was reached from
+	private byte[] previous;
+	// epoch if the cell has been reached by this solve, epoch + 1 once it
+	// is closed, anything lower if neither
+	private int[] stamps;
+	private int epoch;
+	private OpenSet openSet;
+
+	public GridSolver(Maze maze) {
+		this(maze, new BucketQueue());
+	}
+
+	/**
+	 * @param openSet The queue of cells to expand. It must accept
+	 * monotone keys, as BucketQueue and RadixHeap do.
+	 */
+	public GridSolver(Maze maze, OpenSet openSet) {
+		this.maze = maze;
+		width = maze.getWidth();
+		height = maze.getHeight();
+		cells = maze.cellLayout();
+		int numSlots = cells.size();
+		costToHere = new int[numSlots];
+		previous = new byte[numSlots];
+		stamps = new int[numSlots];
+		this.openSet = openSet;
+	}
+
+	/**
+	 * Solves maze from now on, keeping the arrays of the last one.
+	 * @param maze The same size and Layout as the last maze
+	 */
+	public void setMaze(Maze maze) {
+		if (maze.getWidth() != width || maze.getHeight() != height || maze.getLayout() != cells.getLayout())
+			throw new IllegalArgumentException("The maze must be " + width + "x" + height + " " + cells.getLayout() + ".");
+		this.maze = maze;
+	}
+
+	/**
+	 * Finds the path from the entrance in the top left cell to the exit in
+	 * the bottom right cell.
+	 * @return The cells on the path, see solve(int, int)
+	 */
+	public int[] solve() {
+		return solve(0, width * height - 1);
+	}
+
+	/**
+	 * Finds a shortest path between two cells.
+	 * @param start row * width + col of the first cell
+	 * @param goal row * width + col of the last cell
+	 * @return The cells on the path from start to goal inclusive,
+	 * or null if goal cannot be reached
+	 */
+	public int[] solve(int start, int goal) {
+		int numCells = width * height;
+		if (start < 0 || start >= numCells || goal < 0 || goal >= numCells)
+			throw new IllegalArgumentException("Start and goal must be cells of the maze.");
+		nextEpoch();
+		openSet.clear();
+
+		int goalRow = goal / width;
+		int goalCol = goal % width;
+		int startSlot = cells.slotOfCell(start);
+		int goalSlot = cells.slotOfCell(goal);
+		costToHere[startSlot] = 0;
+		stamps[startSlot] = epoch;
+		openSet.push(startSlot, Math.abs(start / width - goalRow) + Math.abs(start % width - goalCol));
+
+		while (!openSet.isEmpty()) {
+			int current = openSet.pop();
+			if (stamps[current] != epoch) {
+				// A stale copy of a cell that was pushed again with a lower cost
+				continue;
+			}
+			stamps[current] = epoch + 1;
+			if (current == goalSlot) {
+				return buildPath(goalSlot);
+			}
+
+			int row = cells.row(current);
+			int col = cells.col(current);
+			int newCostHere = costToHere[current] + 1;
+			if (row > 0 && !maze.hasWallAt(current, Maze.NORTH))
+				relax(cells.north(current), SOUTH, newCostHere, row - 1 - goalRow, col - goalCol);
+			if (col > 0 && !maze.hasWallAt(current, Maze.WEST))
+				relax(cells.west(current), EAST, newCostHere, row - goalRow, col - 1 - goalCol);
+			if (row < height - 1) {
+				int south = cells.south(current);
+				if (!maze.hasWallAt(south, Maze.NORTH))
+					relax(south, NORTH, newCostHere, row + 1 - goalRow, col - goalCol);
+			}
+			if (col < width - 1) {
+				int east = cells.east(current);
+				if (!maze.hasWallAt(east, Maze.WEST))
+					relax(east, WEST, newCostHere, row - goalRow, col + 1 - goalCol);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Moves on to an epoch no cell is stamped with. Only when the stamps
+	 * run out, after a billion solves, are they all cleared.
+	 */
+	private void nextEpoch() {
+		if (epoch >= Integer.MAX_VALUE - 2) {
+			Arrays.fill(stamps, 0);
+			epoch = 0;
+		}
+		epoch += 2;
+	}
+
+	/**
+	 * @param from The direction of the current cell as seen from neighbor
+	 * @param rowsToGoal The row offset from neighbor to the goal
+	 * @param colsToGoal The column offset from neighbor to the goal
+	 */
+	private void relax(int neighbor, byte from, int newCostHere, int rowsToGoal, int colsToGoal) {
+		if (stamps[neighbor] < epoch || (stamps[neighbor] == epoch && newCostHere < costToHere[neighbor])) {
+			stamps[neighbor] = epoch;
+			costToHere[neighbor] = newCostHere;
+			previous[neighbor] = from;
+			// Manhattan distance never overestimates on a 4-connected grid
+			openSet.push(neighbor, newCostHere + Math.abs(rowsToGoal) + Math.abs(colsToGoal));
+		}
+	}
+
+	/**
+	 * @return The cells, not slots, from the start to goal
+	 */
+	private int[] buildPath(int goal) {
+		int length = costToHere[goal] + 1;
+		int[] path = new int[length];
+		int slot = goal;
+		for (int i = length - 1; i > 0; i--) {
+			path[i] = cells.cellOfSlot(slot);
+			switch (previous[slot]) {
+				case NORTH:
+					slot = cells.north(slot);
+					break;
+				case SOUTH:
+					slot = cells.south(slot);
+					break;
+				case WEST:
+					slot = cells.west(slot);
+					break;
+				default:
+					slot = cells.east(slot);
+			}
+		}
+		path[0] = cells.cellOfSlot(slot);
+		return path;
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Disjoint sets over the dense int ids 0 .. size() - 1.
+ * A primitive sibling of DisjointSets for callers which can number their
+ * elements themselves (e.g. grid cells as row * width + col), so no
+ * hashing or boxing is needed.
+ */
+public interface IntDisjointSets {
+
+	/**
+	 * @return The number of elements, valid ids are 0 .. size() - 1
+	 */
+	public int size();
+
+	/**
+	 * Joins two elements and their sets together.
+	 * @param d1 a valid id
+	 * @param d2 a valid id
+	 * After this operation, find(d1) == find(d2)
+	 */
+	public void union(int d1, int d2);
+
+	/**
+	 * Joins the sets of two elements if they are not already the same set.
+	 * @return true if two sets were joined, false if d1 and d2 were
+	 * already in the same set
+	 * @throws IllegalArgumentException if either id is not valid, as
+	 * union() does
+	 */
+	public boolean tryUnion(int d1, int d2);
+
+	/**
+	 * Find which set "data" is a part of.
+	 * @param data a valid id
+	 * @return A unique int identifer for the set "data" is a part of
+	 * find(x) == find(y) iff x and y are part of the same set
+	 */
+	public int find(int data);
+
+	public double getAverageDepth();
+
+	/**
+	 * @return The number of finds made so far, including the ones inside
+	 * union() and sameSet(). Only counted while MazeMetrics.ENABLED,
+	 * otherwise 0.
+	 */
+	public long getFindCount();
+
+	/**
+	 * @return The number of parent links moved closer to their root by
+	 * path compression so far. Only counted while MazeMetrics.ENABLED,
+	 * otherwise 0.
+	 */
+	public long getCompressionSteps();
+
+	public int getNumberOfSets();
+
+	/**
+	 * @param d1 a valid id
+	 * @param d2 a valid id
+	 * @return true if d1 and d2 are in the same set
+	 * @throws IllegalArgumentException if either id is not valid, as
+	 * union() does. Comparing find() results instead would put any two
+	 * invalid ids in the same set.
+	 */
+	public boolean sameSet(int d1, int d2);
+}
@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * Jump point search for 4-connected grids. Instead of pushing every
+ * neighbour, a pixel scans in a straight line until it reaches the goal
+ * or a pixel with a forced neighbour: an opening to the side which could
+ * not have been reached as cheaply without passing through it. Only
+ * those jump points go into the open set. Vertical scans also stop where
+ * a horizontal scan from them would find a jump point, which is what
+ * makes the search complete without diagonal moves. Long straight
+ * corridors and open rooms cost a few pushes instead of one per pixel.
+ */
+public class JumpPointSearch implements SearchStrategy {
+
+	private PassabilityGrid grid;
+	private int width, height;
+	private OpenSet openSet;
+	private int[] costToHere;
+	// The jump point each jump point was reached from
+	private int[] parent;
+	private long[] closed;
+	private int[] touched;
+	private int numTouched;
+	private int expandedNodes;
+	// Only counted while MazeMetrics.ENABLED
+	private int maxOpenSetSize, reopenedNodes;
+	private int start, goal;
+
+	/**
+	 * @param openSet must accept monotone keys, as BucketQueue and
+	 * RadixHeap do
+	 */
+	public JumpPointSearch(PassabilityGrid grid, OpenSet openSet) {
+		this.grid = grid;
+		this.openSet = openSet;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		int numPixels = width * height;
+		costToHere = new int[numPixels];
+		parent = new int[numPixels];
+		closed = new long[(numPixels + 63) >>> 6];
+		touched = new int[64];
+		Arrays.fill(costToHere, Integer.MAX_VALUE);
+	}
+
+	public int[] findPath(int start, int goal) {
+		reset();
+		this.start = start;
+		this.goal = goal;
+		setCost(start, 0, start);
+		openSet.push(start, distance(start, goal));
+
+		while (!openSet.isEmpty()) {
+			int current = openSet.pop();
+			if ((closed[current >>> 6] & (1L << current)) != 0) {
+				// A stale copy of a pixel that was pushed again with a lower cost
+				continue;
+			}
+			closed[current >>> 6] |= 1L << current;
+			expandedNodes++;
+			if (current == goal)
+				return buildPath();
+
+			int x = current % width;
+			int y = current / width;
+			int dx = Integer.signum(x - parent[current] % width);
+			int dy = Integer.signum(y - parent[current] / width);
+			// The start tries every way out, jump points only go straight on
+			// and to the two sides
+			boolean isStart = dx == 0 && dy == 0;
+			if (dx != 0 || isStart) {
+				jumpFrom(current, jumpVertical(x, y, -1));
+				jumpFrom(current, jumpVertical(x, y, 1));
+			}
+			if (dy != 0 || isStart) {
+				jumpFrom(current, jumpHorizontal(x, y, -1));
+				jumpFrom(current, jumpHorizontal(x, y, 1));
+			}
+			if (dx != 0)
+				jumpFrom(current, jumpHorizontal(x, y, dx));
+			if (dy != 0)
+				jumpFrom(current, jumpVertical(x, y, dy));
+		}
+		return null;
+	}
+
+	public int getExpandedNodes() {
+		return expandedNodes;
+	}
+
+	public int getMaxOpenSetSize() {
+		return maxOpenSetSize;
+	}
+
+	public int getReopenedNodes() {
+		return reopenedNodes;
+	}
+
+	private void reset() {
+		for (int i = 0; i < numTouched; i++) {
+			int p = touched[i];
+			costToHere[p] = Integer.MAX_VALUE;
+			// Only touched pixels are ever closed
+			closed[p >>> 6] = 0;
+		}
+		numTouched = 0;
+		expandedNodes = 0;
+		maxOpenSetSize = 0;
+		reopenedNodes = 0;
+		openSet.clear();
+	}
+
+	private void jumpFrom(int current, int jumpPoint) {
+		if (jumpPoint < 0)
+			return;
+		int newCost = costToHere[current] + distance(current, jumpPoint);
+		if (newCost < costToHere[jumpPoint]) {
+			if (MazeMetrics.ENABLED && costToHere[jumpPoint] != Integer.MAX_VALUE)
+				reopenedNodes++;
+			setCost(jumpPoint, newCost, current);
+			openSet.push(jumpPoint, newCost + distance(jumpPoint, goal));
+			if (MazeMetrics.ENABLED)
+				maxOpenSetSize = Math.max(maxOpenSetSize, openSet.size());
+		}
+	}
+
+	/**
+	 * Scans from (x, y) in direction dx.
+	 * @return The first jump point on the way, or -1 if a wall comes first
+	 */
+	private int jumpHorizontal(int x, int y, int dx) {
+		while (true) {
+			x += dx;
+			if (!isOpen(x, y))
+				return -1;
+			int p = y * width + x;
+			if (p == goal)
+				return p;
+			if ((isOpen(x, y - 1) && !isOpen(x - dx, y - 1)) || (isOpen(x, y + 1) && !isOpen(x - dx, y + 1)))
+				return p;
+		}
+	}
+
+	/**
+	 * Scans from (x, y) in direction dy, also looking sideways from every
+	 * pixel on the way.
+	 * @return The first jump point on the way, or -1 if a wall comes first
+	 */
+	private int jumpVertical(int x, int y, int dy) {
+		while (true) {
+			y += dy;
+			if (!isOpen(x, y))
+				return -1;
+			int p = y * width + x;
+			if (p == goal)
+				return p;
+			if ((isOpen(x - 1, y) && !isOpen(x - 1, y - dy)) || (isOpen(x + 1, y) && !isOpen(x + 1, y - dy)))
+				return p;
+			if (jumpHorizontal(x, y, 1) >= 0 || jumpHorizontal(x, y, -1) >= 0)
+				return p;
+		}
+	}
+
+	private boolean isOpen(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height && grid.isOpen(x, y);
+	}
+
+	private void setCost(int p, int cost, int from) {
+		if (costToHere[p] == Integer.MAX_VALUE) {
+			if (numTouched == touched.length)
+				touched = Arrays.copyOf(touched, numTouched * 2);
+			touched[numTouched++] = p;
+		}
+		costToHere[p] = cost;
+		parent[p] = from;
+	}
+
+	private int distance(int p, int q) {
+		return Math.abs(p % width - q % width) + Math.abs(p / width - q / width);
+	}
+
+	/**
+	 * Fills in the straight lines between the jump points back from goal.
+	 */
+	private int[] buildPath() {
+		int[] path = new int[costToHere[goal] + 1];
+		int i = path.length - 1;
+		for (int p = goal; i > 0; p = parent[p]) {
+			int from = parent[p];
+			int step = Math.abs(p - from) < width ? Integer.signum(p - from) : (p > from ? width : -width);
+			for (int q = p; q != from; q -= step)
+				path[i--] = q;
+		}
+		path[0] = start;
+		return path;
+	}
+}
@@ -0,0 +1,82 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Randomized Kruskal's algorithm over a shuffled wall list: every inner
+ * wall is visited once, in random order, and knocked down if it joins
+ * two separate sets. See Maze.Algorithm.SHUFFLED_EDGES.
+ */
+public class KruskalGenerator implements MazeGenerator {
+
+	public void generate(Maze maze, RandomGenerator random) {
+		long numWalls = (long)(maze.getHeight() - 1) * maze.getWidth() + (long)maze.getHeight() * (maze.getWidth() - 1);
+		if (numWalls > Integer.MAX_VALUE - 8 || (long)maze.cellLayout().size() * Maze.DIR_COUNT > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Maze is too large for SHUFFLED_EDGES");
+		generateRegion(maze, 0, maze.getHeight(), 0, maze.getWidth(), random, maze.scratch());
+	}
+
+	/**
+	 * Runs the algorithm on the cells [top, bottom) x [left, right) only,
+	 * leaving the walls on the border of the region closed. The cells of
+	 * the region are numbered by slots of the maze's Layout, both in the
+	 * list of walls (encoded as slot * 2 + dir), which is built and
+	 * shuffled in a single pass, and in the disjoint sets. The walls are
+	 * listed row by row whatever the layout, so a seed makes the same
+	 * maze in every layout.
+	 * @param scratch The arrays to work in, or null if other threads are
+	 * generating other regions of the same maze at the same time
+	 */
+	static void generateRegion(Maze maze, int top, int bottom, int left, int right, RandomGenerator random,
+	    GeneratorScratch scratch) {
+		CellLayout mazeCells = maze.cellLayout();
+		int regionWidth = right - left;
+		int regionHeight = bottom - top;
+		boolean wholeMaze = regionWidth == maze.getWidth() && regionHeight == maze.getHeight();
+		CellLayout cells = wholeMaze ? mazeCells : new CellLayout(mazeCells.getLayout(), regionWidth, regionHeight);
+		int numWalls = (regionHeight - 1) * regionWidth + regionHeight * (regionWidth - 1);
+		boolean atomic = scratch == null;
+		int[] walls = atomic ? new int[numWalls] : scratch.ints(numWalls);
+		// "Inside-out" Fisher-Yates: fill and shuffle the list in one pass
+		int count = 0;
+		for (int r = 0; r < regionHeight; r++) {
+			for (int c = 0; c < regionWidth; c++) {
+				int slot = cells.slot(r, c);
+				if (r > 0)
+					count = insertShuffled(walls, count, slot * Maze.DIR_COUNT + Maze.NORTH, random);
+				if (c > 0)
+					count = insertShuffled(walls, count, slot * Maze.DIR_COUNT + Maze.WEST, random);
+			}
+		}
+
+		// Padding slots are sets of their own which are never joined
+		int numSlots = cells.size();
+		int unjoined = numSlots - regionWidth * regionHeight + 1;
+		IntDisjointSets cellSets = atomic ? new ArrayDisjointSets(numSlots, random) : scratch.disjointSets(numSlots, random);
+		int i = 0;
+		for (; i < numWalls && cellSets.getNumberOfSets() > unjoined; i++) {
+			int slot = walls[i] / Maze.DIR_COUNT;
+			int wallDir = walls[i] % Maze.DIR_COUNT;
+			int neighbor = wallDir == Maze.NORTH ? cells.north(slot) : cells.west(slot);
+			if (cellSets.tryUnion(slot, neighbor)) {
+				int mazeSlot = wholeMaze ? slot : mazeCells.slot(top + cells.row(slot), left + cells.col(slot));
+				// Words on the left and right edge are shared with other regions
+				if (atomic)
+					maze.openWallAtomicAt(mazeSlot, wallDir);
+				else
+					maze.openWallAt(mazeSlot, wallDir);
+			}
+		}
+		maze.countGeneration(i, cellSets);
+	}
+
+	/**
+	 * Appends value to the first count entries of list and swaps it with
+	 * a random one of them, so the list stays uniformly shuffled.
+	 * @return The new count
+	 */
+	static int insertShuffled(int[] list, int count, int value, RandomGenerator random) {
+		int j = random.nextInt(count + 1);
+		list[count] = list[j];
+		list[j] = value;
+		return count + 1;
+	}
+}
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Collects scanlines in one direct ByteBuffer and writes it to a channel
+ * whenever it fills up, so writing a huge image takes a handful of large
+ * writes and no per-pixel work.
+ */
+class LineWriter {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * @param maxLineLength The longest line that will be written,
+	 * including padding
+	 */
+	LineWriter(WritableByteChannel channel, int maxLineLength) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, maxLineLength));
+	}
+
+	void write(byte[] bytes) throws IOException {
+		write(bytes, 0);
+	}
+
+	/**
+	 * Writes bytes followed by padding zero bytes.
+	 */
+	void write(byte[] bytes, int padding) throws IOException {
+		if (buffer.remaining() < bytes.length + padding)
+			drain();
+		buffer.put(bytes);
+		for (int i = 0; i < padding; i++)
+			buffer.put((byte)0);
+	}
+
+	/**
+	 * Writes out everything buffered and closes the channel.
+	 */
+	void close() throws IOException {
+		drain();
+		channel.close();
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
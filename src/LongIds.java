@@ -0,0 +1,73 @@
+/**
+ * ElementIds for int and long elements, held unboxed. Slots whose id is
+ * 0 are empty, so ids are stored plus one.
+ */
+final class LongIds {
+
+	private long[] keys;
+	private int[] ids;
+	private int size;
+	private int shift;
+
+	LongIds() {
+		keys = new long[16];
+		ids = new int[16];
+		shift = 64 - 4;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return The id of key, or -1 if it has none
+	 */
+	int get(long key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			int id = ids[i];
+			if (id == 0 || keys[i] == key)
+				return id - 1;
+		}
+	}
+
+	/**
+	 * Gives key the next id, size(), unless it already has one.
+	 * @return The id key already had, or -1 if it was added
+	 */
+	int add(long key) {
+		if (2 * (size + 1) > keys.length)
+			grow();
+		int mask = keys.length - 1;
+		int i = slot(key);
+		for (; ids[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return ids[i] - 1;
+		}
+		keys[i] = key;
+		ids[i] = ++size;
+		return -1;
+	}
+
+	private int slot(long key) {
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldIds = ids;
+		keys = new long[oldKeys.length * 2];
+		ids = new int[oldIds.length * 2];
+		shift--;
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldIds[j] == 0)
+				continue;
+			int i = slot(oldKeys[j]);
+			while (ids[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			ids[i] = oldIds[j];
+		}
+	}
+}
@@ -0,0 +1,179 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A PassabilityGrid read in place from an uncompressed 1 or 24 bit BMP
+ * file mapped into memory. Only the header is parsed; every isOpen()
+ * reads the pixel straight from the mapped file, so opening a huge maze
+ * takes no time and no heap. White pixels are open, as in BitmapGrid.
+ */
+public class MappedBmpGrid implements PassabilityGrid {
+
+	private static final int SOLVE_COLOR = 0xFF0000;
+
+	private File file;
+	private MappedFile pixels;
+	private int width, height;
+	private boolean topDown;
+	private int bitsPerPixel;
+	private long dataOffset;
+	private long stride;
+	// The value of an open pixel in a 1 bit image, -1 if no palette entry
+	// is white
+	private int openBit;
+	private int[] palette;
+
+	private MappedBmpGrid(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Maps a BMP file read-only and parses its header.
+	 * @throws IOException if the file is not an uncompressed 1 or 24 bit
+	 * BMP, or cannot be read
+	 */
+	public static MappedBmpGrid open(File file) throws IOException {
+		MappedBmpGrid grid = new MappedBmpGrid(file);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			grid.readHeader(channel);
+			grid.pixels = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+		}
+		return grid;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isOpen(int x, int y) {
+		long row = rowOffset(y);
+		if (bitsPerPixel == 1) {
+			int bit = (pixels.get(row + (x >>> 3)) >>> (7 - (x & 7))) & 1;
+			return bit == openBit;
+		}
+		long p = row + 3L * x;
+		return (pixels.get(p) & pixels.get(p + 1) & pixels.get(p + 2)) == (byte)0xFF;
+	}
+
+	public int getBitsPerPixel() {
+		return bitsPerPixel;
+	}
+
+	/**
+	 * Writes a copy of the maze with path painted red. A 24 bit file is
+	 * copied as it is and the path is written into the mapped copy. A 1
+	 * bit file has only its two palette colours, so the copy is a 24 bit
+	 * BMP of the same picture, expanded one row at a time into the
+	 * mapped output.
+	 * @param path Pixels numbered y * width + x, as found by MazeSolver
+	 */
+	public void writeSolution(int[] path, File output) throws IOException {
+		MappedFile out;
+		long outOffset, outStride;
+		if (bitsPerPixel == 24) {
+			Files.copy(file.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				out = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, channel.size());
+			}
+			outOffset = dataOffset;
+			outStride = stride;
+		} else {
+			outStride = (3L * width + 3) & ~3L;
+			outOffset = 54;
+			long fileSize = outOffset + outStride * height;
+			if (fileSize > 0xFFFFFFFFL || outStride > Integer.MAX_VALUE - 8)
+				throw new IllegalArgumentException("Maze is too large for a 24 bit BMP file.");
+			try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+			    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeHeader24(channel, fileSize);
+				out = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, fileSize);
+			}
+			byte[] line = new byte[(int)outStride];
+			for (int y = 0; y < height; y++) {
+				long row = rowOffset(y);
+				for (int x = 0; x < width; x++) {
+					int color = palette[(pixels.get(row + (x >>> 3)) >>> (7 - (x & 7))) & 1];
+					line[3 * x] = (byte)color;
+					line[3 * x + 1] = (byte)(color >>> 8);
+					line[3 * x + 2] = (byte)(color >>> 16);
+				}
+				out.put(outOffset + (topDown ? y : height - 1 - y) * outStride, line);
+			}
+		}
+
+		for (int p : path) {
+			int x = p % width;
+			int y = p / width;
+			long pixel = outOffset + (topDown ? y : height - 1 - y) * outStride + 3L * x;
+			out.put(pixel, (byte)SOLVE_COLOR);
+			out.put(pixel + 1, (byte)(SOLVE_COLOR >>> 8));
+			out.put(pixel + 2, (byte)(SOLVE_COLOR >>> 16));
+		}
+		out.force();
+	}
+
+	private long rowOffset(int y) {
+		return dataOffset + (topDown ? y : height - 1 - y) * stride;
+	}
+
+	private void readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(54 + 2 * 4).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header) >= 0)
+			;
+		header.flip();
+		if (header.limit() < 54 || header.get(0) != 'B' || header.get(1) != 'M')
+			throw new IOException(file + " is not a BMP file.");
+		dataOffset = header.getInt(10) & 0xFFFFFFFFL;
+		int infoSize = header.getInt(14);
+		width = header.getInt(18);
+		int signedHeight = header.getInt(22);
+		bitsPerPixel = header.getShort(28);
+		int compression = header.getInt(30);
+		if (infoSize < 40 || width <= 0 || signedHeight == 0 || signedHeight == Integer.MIN_VALUE)
+			throw new IOException(file + " has an unsupported BMP header.");
+		if (compression != 0 || (bitsPerPixel != 1 && bitsPerPixel != 24))
+			throw new IOException(file + " must be an uncompressed 1 or 24 bit BMP.");
+		topDown = signedHeight < 0;
+		height = Math.abs(signedHeight);
+		stride = (((long)width * bitsPerPixel + 31) >>> 5) * 4;
+		if (dataOffset + stride * height > channel.size())
+			throw new IOException(file + " is shorter than its header says.");
+
+		if (bitsPerPixel == 1) {
+			ByteBuffer colors = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(colors, 14 + infoSize);
+			palette = new int[] { colors.getInt(0) & 0xFFFFFF, colors.getInt(4) & 0xFFFFFF };
+			openBit = palette[1] == 0xFFFFFF ? 1 : palette[0] == 0xFFFFFF ? 0 : -1;
+		}
+	}
+
+	private void writeHeader24(FileChannel channel, long fileSize) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(54).order(ByteOrder.LITTLE_ENDIAN);
+		header.put((byte)'B').put((byte)'M');
+		header.putInt((int)fileSize);
+		header.putInt(0);
+		header.putInt(54);
+		header.putInt(40);
+		header.putInt(width);
+		header.putInt(topDown ? -height : height);
+		header.putShort((short)1);
+		header.putShort((short)24);
+		header.putInt(0);
+		header.putInt((int)(fileSize - 54));
+		header.putInt(2835).putInt(2835);
+		header.putInt(0).putInt(0);
+		header.flip();
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+	}
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file mapped into memory as a series of 1 GB buffers, so files larger
+ * than the 2 GB a single MappedByteBuffer can cover are read and written
+ * by long offset all the same.
+ */
+class MappedFile {
+
+	private static final int CHUNK_BITS = 30;
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+	private MappedByteBuffer[] chunks;
+	private long size;
+
+	/**
+	 * Maps the first size bytes of channel. The mapping stays valid after
+	 * the channel is closed.
+	 */
+	MappedFile(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+		this.size = size;
+		chunks = new MappedByteBuffer[(int)((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long)i << CHUNK_BITS;
+			chunks[i] = channel.map(mode, start, Math.min(size - start, 1L << CHUNK_BITS));
+		}
+	}
+
+	long size() {
+		return size;
+	}
+
+	byte get(long position) {
+		return chunks[(int)(position >>> CHUNK_BITS)].get((int)(position & CHUNK_MASK));
+	}
+
+	void put(long position, byte value) {
+		chunks[(int)(position >>> CHUNK_BITS)].put((int)(position & CHUNK_MASK), value);
+	}
+
+	void put(long position, byte[] values) {
+		for (int i = 0; i < values.length;) {
+			MappedByteBuffer chunk = chunks[(int)((position + i) >>> CHUNK_BITS)];
+			int offset = (int)((position + i) & CHUNK_MASK);
+			int count = Math.min(values.length - i, chunk.capacity() - offset);
+			chunk.put(offset, values, i, count);
+			i += count;
+		}
+	}
+
+	/**
+	 * Writes any changes back to the file.
+	 */
+	void force() {
+		for (MappedByteBuffer chunk : chunks)
+			chunk.force();
+	}
+}
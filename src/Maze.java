@@ -1,116 +1,626 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
 
 public class Maze {
 
-	private MazeCell[][] cells;
+	/**
+	 * The MazeGenerators that come with Maze. All of them produce perfect
+	 * mazes. The first four run randomized Kruskal's algorithm; the others
+	 * differ in texture as much as in speed. New ones go at the end, as
+	 * MazeFile stores the position of the constant.
+	 */
+	public enum Algorithm {
+		/**
+		 * Keep picking a random wall until every cell is connected.
+		 * Picks are increasingly rejected as the maze fills up.
+		 */
+		RANDOM_WALLS(new RandomWallsGenerator()),
+		/**
+		 * Shuffle every inner wall once and visit each of them exactly once.
+		 * Needs an int per wall, so width * height must be below 2^30.
+		 */
+		SHUFFLED_EDGES(new KruskalGenerator()),
+		/**
+		 * SHUFFLED_EDGES spread over the ForkJoinPool the constructor is
+		 * called from, or the common pool. The result depends on thread
+		 * scheduling, so a seed does not reproduce the same maze.
+		 */
+		PARALLEL(new ParallelKruskalGenerator()),
+		/**
+		 * Splits the grid into square tiles which are generated on their
+		 * own threads with their own disjoint sets and random generators,
+		 * then joins neighbouring tiles through single random walls.
+		 * Tiles share no state while they are generated and fit in cache,
+		 * at the cost of visible tile borders.
+		 */
+		TILED(new TiledKruskalGenerator()),
+		/**
+		 * Depth-first carving with an explicit stack: long winding
+		 * corridors. Needs an int per cell.
+		 */
+		BACKTRACKER(new BacktrackerGenerator()),
+		/**
+		 * Randomized Prim's algorithm: short dead ends everywhere. Needs
+		 * an int and a byte per cell.
+		 */
+		PRIM(new PrimGenerator()),
+		/**
+		 * Wilson's algorithm: loop-erased random walks, every maze equally
+		 * likely. Needs an int per cell, and slows down sharply with size.
+		 */
+		WILSON(new WilsonGenerator());
+
+		private final MazeGenerator generator;
 
-	private static int DIR_COUNT = 2;
-	private static int NORTH = 0;
-	private static int WEST = 1;
-	private static int[][] DIR_VECTORS = { { -1, 0 }, { 0, -1 } };
+		private Algorithm(MazeGenerator generator) {
+			this.generator = generator;
+		}
+
+		public MazeGenerator getGenerator() {
+			return generator;
+		}
+
+		/**
+		 * @return The algorithm whose generator is generator, or null if it
+		 * is none of them
+		 */
+		static Algorithm of(MazeGenerator generator) {
+			for (Algorithm a : values()) {
+				if (a.generator == generator)
+					return a;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * How the walls are laid out in memory, see CellLayout. SHUFFLED_EDGES
+	 * numbers its disjoint sets and GridSolver its search arrays the same
+	 * way, so on mazes much larger than the CPU caches the layout decides
+	 * how many cache misses they take. The maze itself, its seed and
+	 * everything read from it are the same whichever it uses.
+	 */
+	public enum Layout {
+		/**
+		 * Cell after cell along each row. A cell is a whole row away from
+		 * the cells above and below it.
+		 */
+		ROW_MAJOR,
+		/**
+		 * 8 x 8 blocks of cells one after another, so most neighbours,
+		 * vertical ones included, share a cache line or the next one.
+		 */
+		BLOCKED
+	}
+
+	private int width, height;
+	// Two bits per cell, bit (row * width + col) * 2 + dir is set once the
+	// NORTH or WEST wall of that cell has been knocked down.
+	private long[] openWalls;
+	private CellLayout cells;
+	private Algorithm algorithm;
+	// null if the maze was loaded without a known algorithm
+	private MazeGenerator generator;
+	private OptionalLong seed = OptionalLong.empty();
+	private MazeTreeIndex treeIndex;
+	// The arrays of the generator, only kept once the maze is regenerated
+	private GeneratorScratch scratch;
+	// Counts the regenerate() calls, so caches of the maze can tell
+	private int modCount;
+	// The counts of the generation in progress, null unless
+	// MazeMetrics.ENABLED
+	private MazeMetrics.GenerationEvent metrics;
+
+	static final int DIR_COUNT = 2;
+	static final int NORTH = 0;
+	static final int WEST = 1;
+	private static final VarHandle WALL_WORDS = MethodHandles.arrayElementVarHandle(long[].class);
 
 	public Maze(int width, int height) {
+		this(width, height, Algorithm.SHUFFLED_EDGES);
+	}
+
+	/**
+	 * Creates a maze which is the same every time it is created with the
+	 * same size and seed.
+	 */
+	public Maze(int width, int height, long seed) {
+		this(width, height, Algorithm.SHUFFLED_EDGES, seed);
+	}
+
+	public Maze(int width, int height, Algorithm algorithm) {
+		this(width, height, algorithm, new SplittableRandom().nextLong());
+	}
+
+	public Maze(int width, int height, Algorithm algorithm, long seed) {
+		this(width, height, algorithm, new SplittableRandom(seed));
+		this.seed = OptionalLong.of(seed);
+	}
+
+	/**
+	 * Creates the same maze as new Maze(width, height, algorithm, seed),
+	 * with its walls laid out in memory as layout says.
+	 */
+	public Maze(int width, int height, Algorithm algorithm, Layout layout, long seed) {
+		this(width, height, algorithm.getGenerator(), layout, new SplittableRandom(seed));
+		this.seed = OptionalLong.of(seed);
+	}
+
+	/**
+	 * @param random The source of every random choice made while
+	 * generating, including tie-breaks in the disjoint sets. It is only
+	 * used by this constructor, so mazes generated on different threads
+	 * with their own generators share no state.
+	 */
+	public Maze(int width, int height, Algorithm algorithm, RandomGenerator random) {
+		this(width, height, algorithm.getGenerator(), random);
+	}
+
+	/**
+	 * Creates a maze which is the same every time it is created with the
+	 * same size, generator and seed.
+	 */
+	public Maze(int width, int height, MazeGenerator generator, long seed) {
+		this(width, height, generator, new SplittableRandom(seed));
+		this.seed = OptionalLong.of(seed);
+	}
+
+	/**
+	 * Generates a maze with any generator. getAlgorithm() is the
+	 * Algorithm it belongs to, or null if it is not one of them.
+	 * @param random The source of every random choice made while
+	 * generating, only used by this constructor
+	 */
+	public Maze(int width, int height, MazeGenerator generator, RandomGenerator random) {
+		this(width, height, generator, Layout.ROW_MAJOR, random);
+	}
+
+	public Maze(int width, int height, MazeGenerator generator, Layout layout, RandomGenerator random) {
+		this(width, height, Algorithm.of(generator), OptionalLong.empty(), layout);
+		this.generator = generator;
+		generate(random);
+	}
+
+	/**
+	 * Creates a maze with every wall closed, for a loader to fill in with
+	 * setRow().
+	 * @param algorithm how the maze was generated, or null if unknown
+	 */
+	Maze(int width, int height, Algorithm algorithm, OptionalLong seed) {
+		this(width, height, algorithm, seed, Layout.ROW_MAJOR);
+	}
+
+	private Maze(int width, int height, Algorithm algorithm, OptionalLong seed, Layout layout) {
 		if (width < 2 || height < 2)
 			throw new IllegalArgumentException("width and height must be >= 2");
-		cells = new MazeCell[height][width];
-		for (int r = 0; r < cells.length; r++) {
-			for (int c = 0; c < cells[0].length; c++) {
-				cells[r][c] = new MazeCell(r, c);
-			}
-		}
-		generateMaze();
-	}
-
-	private void generateMaze() {
-		DisjointSets<MazeCell> cellSets = new FasterDisjointSets<>();
-		for (int r = 0; r < cells.length; r++)
-			for (int c = 0; c < cells[0].length; c++)
-				cellSets.makeSet(cells[r][c]);
-		// Substitute these line for easier mazes
-		//MazeCell start = cells[0][0];
-		//MazeCell end = cells[cells.length - 1][cells[0].length - 1];
-		//while (!cellSets.sameSet(start, end)) {
-		while (cellSets.getNumberOfSets() > 1) {
-			MazeCell randomCell = getRandomCell();
-			int wallDir = (int)(Math.random() * DIR_COUNT);
-			int neighborRow = randomCell.row + DIR_VECTORS[wallDir][0];
-			int neighborCol = randomCell.col + DIR_VECTORS[wallDir][1];
-			if (isInBounds(neighborRow, neighborCol)) {
-				MazeCell neighbor = cells[neighborRow][neighborCol];
-				if (!cellSets.sameSet(neighbor, randomCell)) {
-					// The two cells are now a part of the same set of reachable cells
-					cellSets.union(randomCell, neighbor);
-					// Knock down the walls
-					randomCell.walls[wallDir] = false;
-				}
-			}
+		if ((long)width * height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("width * height must fit in an int");
+		this.width = width;
+		this.height = height;
+		this.algorithm = algorithm;
+		this.generator = algorithm != null ? algorithm.getGenerator() : null;
+		this.seed = seed;
+		cells = new CellLayout(layout, width, height);
+		openWalls = new long[(int)(((long)cells.size() * DIR_COUNT + 63) >>> 6)];
+	}
+
+	/**
+	 * Replaces this maze with the one new Maze(width, height, generator,
+	 * seed) would create, in place. The walls are cleared instead of
+	 * reallocated, and the first call keeps the arrays and disjoint sets
+	 * the generator works in for the calls after it, so generating maze
+	 * after maze of the same size allocates nothing but the random
+	 * generator. The kept arrays take more memory than the maze itself,
+	 * which is why mazes which are never regenerated do not keep them.
+	 * PARALLEL and TILED still allocate the state of their tasks. The
+	 * tree index is dropped and rebuilt on the next getTreeIndex(), and
+	 * every MazeTileCache of the maze drops its tiles on its next call.
+	 * Tiles or paths taken from the maze before stay those of the old
+	 * maze.
+	 * @throws IllegalStateException if the maze was loaded without an
+	 * algorithm to regenerate it with
+	 */
+	public void regenerate(long seed) {
+		if (generator == null)
+			throw new IllegalStateException("The maze was loaded without an algorithm to regenerate it with.");
+		if (scratch == null)
+			scratch = new GeneratorScratch();
+		Arrays.fill(openWalls, 0);
+		treeIndex = null;
+		modCount++;
+		this.seed = OptionalLong.of(seed);
+		generate(new SplittableRandom(seed));
+	}
+
+	private void generate(RandomGenerator random) {
+		if (MazeMetrics.ENABLED)
+			metrics = MazeMetrics.startGeneration(this, generator);
+		generator.generate(this, random);
+		if (MazeMetrics.ENABLED) {
+			MazeMetrics.finish(metrics);
+			metrics = null;
 		}
 	}
 
+	/**
+	 * @return The arrays for the generator to work in: the ones kept
+	 * between regenerate() calls, or new ones which are dropped with the
+	 * generation
+	 */
+	GeneratorScratch scratch() {
+		return scratch != null ? scratch : new GeneratorScratch();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Checks whether there is a passage between two cells.
+	 * @return true if (row, col) and (neighborRow, neighborCol) are
+	 * adjacent cells of this maze and the wall between them is open
+	 */
+	public boolean isOpen(int row, int col, int neighborRow, int neighborCol) {
+		if (!isInBounds(row, col) || !isInBounds(neighborRow, neighborCol))
+			return false;
+		if (row == neighborRow && Math.abs(col - neighborCol) == 1)
+			return !hasWall(row * width + Math.max(col, neighborCol), WEST);
+		if (col == neighborCol && Math.abs(row - neighborRow) == 1)
+			return !hasWall(Math.max(row, neighborRow) * width + col, NORTH);
+		return false;
+	}
+
+	/**
+	 * @return The algorithm the maze was generated with, or null if it
+	 * was loaded without one
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public Layout getLayout() {
+		return cells.getLayout();
+	}
+
+	/**
+	 * @return A number which changes whenever the walls of the maze do
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * @return The slots of the cells of this maze
+	 */
+	CellLayout cellLayout() {
+		return cells;
+	}
+
+	/**
+	 * @return The seed which regenerates this maze with the same size and
+	 * algorithm, if there is one. Mazes generated from a RandomGenerator
+	 * passed in directly have none, and PARALLEL mazes are not
+	 * reproducible even from their seed.
+	 */
+	public OptionalLong getSeed() {
+		return seed;
+	}
+
+	/**
+	 * The maze is a spanning tree of its cells, so paths between cells
+	 * are unique and can be looked up instead of searched for. The index
+	 * costs three ints per cell, so it is built on the first call rather
+	 * than with every maze.
+	 * @return The index of paths between the cells of this maze
+	 */
+	public MazeTreeIndex getTreeIndex() {
+		if (treeIndex == null)
+			treeIndex = new MazeTreeIndex(this);
+		return treeIndex;
+	}
+
+	/**
+	 * @param cell row * width + col
+	 */
+	boolean hasWall(int cell, int dir) {
+		return hasWallAt(cells.slotOfCell(cell), dir);
+	}
+
+	void openWall(int cell, int dir) {
+		openWallAt(cells.slotOfCell(cell), dir);
+	}
+
+	/**
+	 * openWall() for cells whose bits may share a word with cells being
+	 * changed by other threads.
+	 */
+	void openWallAtomic(int cell, int dir) {
+		openWallAtomicAt(cells.slotOfCell(cell), dir);
+	}
+
+	/**
+	 * hasWall() of the cell in slot of cellLayout()
+	 */
+	boolean hasWallAt(int slot, int dir) {
+		long bit = (long)slot * DIR_COUNT + dir;
+		return (openWalls[(int)(bit >>> 6)] & (1L << bit)) == 0;
+	}
+
+	void openWallAt(int slot, int dir) {
+		long bit = (long)slot * DIR_COUNT + dir;
+		openWalls[(int)(bit >>> 6)] |= 1L << bit;
+	}
+
+	void openWallAtomicAt(int slot, int dir) {
+		long bit = (long)slot * DIR_COUNT + dir;
+		WALL_WORDS.getAndBitwiseOr(openWalls, (int)(bit >>> 6), 1L << bit);
+	}
+
+	/**
+	 * Opens the wall between two adjacent cells.
+	 */
+	void openPassage(int cell, int neighbor) {
+		if (neighbor == cell - width)
+			openWall(cell, NORTH);
+		else if (neighbor == cell + width)
+			openWall(neighbor, NORTH);
+		else if (neighbor == cell - 1)
+			openWall(cell, WEST);
+		else
+			openWall(neighbor, WEST);
+	}
+
+	/**
+	 * Adds the work of a generator to MazeMetrics, if they are counted and
+	 * the maze is being generated, by its constructor or by regenerate().
+	 * @param picks The walls the generator picked, each of which either
+	 * joined two sets or was rejected
+	 */
+	void countGeneration(long picks, IntDisjointSets sets) {
+		if (MazeMetrics.ENABLED && metrics != null)
+			metrics.add(picks, sets);
+	}
+
+	/**
+	 * countGeneration() for generators without disjoint sets.
+	 * @param joined The walls knocked down
+	 */
+	void countGeneration(long picks, long joined) {
+		if (MazeMetrics.ENABLED && metrics != null)
+			metrics.add(picks, joined, 0, 0);
+	}
+
 	/**
 	 * Create a bitmap image of the maze
 	 * @return A BufferedImage which can then be written to an image
 	 * file using ImageIO.write()
 	 */
 	public BufferedImage getMazeImage() {
-		int IMAGE_WIDTH = cells[0].length * 2 + 1;
-		int IMAGE_HEIGHT = cells.length * 2 + 1;
-		int EMPTY_COLOR = 0xFFFFFF;
-		int WALL_COLOR = 0;
-		BufferedImage img = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_BYTE_BINARY);
-
-		drawRect(img, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, EMPTY_COLOR);
-
-		for (int r = 0; r < cells.length; r++) {
-			for (int c = 0; c < cells[0].length; c++) {
-				int x = c * 2;
-				int y = r * 2;
-				img.setRGB(x, y, WALL_COLOR);
-				MazeCell cell = cells[r][c];
-				if (cell.walls[NORTH])
-					img.setRGB(x + 1, y, WALL_COLOR);
-				if (cell.walls[WEST])
-					img.setRGB(x, y + 1, WALL_COLOR);
+		ScanlineEncoder encoder = new ScanlineEncoder(width, height, true);
+		BufferedImage img = new BufferedImage(encoder.getImageWidth(), encoder.getImageHeight(), BufferedImage.TYPE_BYTE_BINARY);
+		// Palette entry 1 is white, and every scanline starts on a new byte
+		byte[] pixels = ((DataBufferByte)img.getRaster().getDataBuffer()).getData();
+		int bytesPerLine = encoder.getBytesPerLine();
+		byte[] upper = new byte[bytesPerLine];
+		byte[] lower = new byte[bytesPerLine];
+		long[] rowWalls = new long[(width * DIR_COUNT + 63) >>> 6];
+		for (int r = 0; r < height; r++) {
+			copyRow(r, rowWalls);
+			encoder.encodeRow(rowWalls, r, upper, lower);
+			System.arraycopy(upper, 0, pixels, 2 * r * bytesPerLine, bytesPerLine);
+			System.arraycopy(lower, 0, pixels, (2 * r + 1) * bytesPerLine, bytesPerLine);
+		}
+		encoder.encodeBottom(upper);
+		System.arraycopy(upper, 0, pixels, 2 * height * bytesPerLine, bytesPerLine);
+		return img;
+	}
+
+	/**
+	 * Draws part of the picture getMazeImage() draws, without drawing the
+	 * rest of it.
+	 * @param top, left the first row and column of cells to draw
+	 * @param rows, cols the number of rows and columns of cells, which
+	 * are drawn with the walls around them
+	 * @param scale the width and height in pixels of every maze pixel.
+	 * Each scanline is scaled as it is drawn, so no full size copy of
+	 * the region is ever made.
+	 */
+	public BufferedImage renderRegion(int top, int left, int rows, int cols, int scale) {
+		if (top < 0 || left < 0 || rows < 1 || cols < 1 || (long)top + rows > height || (long)left + cols > width)
+			throw new IllegalArgumentException("The region must lie inside the maze.");
+		return renderPixels(2 * left, 2 * top, 2 * cols + 1, 2 * rows + 1, scale);
+	}
+
+	/**
+	 * Draws the pixels [x, x + pixelWidth) x [y, y + pixelHeight) of the
+	 * maze image, each as a scale x scale square.
+	 */
+	BufferedImage renderPixels(int x, int y, int pixelWidth, int pixelHeight, int scale) {
+		if (scale < 1)
+			throw new IllegalArgumentException("scale must be >= 1");
+		long imageWidth = (long)pixelWidth * scale;
+		long imageHeight = (long)pixelHeight * scale;
+		if (((imageWidth + 7) >>> 3) * imageHeight > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The rendered region is too large for an image.");
+		BufferedImage img = new BufferedImage((int)imageWidth, (int)imageHeight, BufferedImage.TYPE_BYTE_BINARY);
+		byte[] pixels = ((DataBufferByte)img.getRaster().getDataBuffer()).getData();
+		int bytesPerLine = (int)((imageWidth + 7) >>> 3);
+		byte[] line = new byte[bytesPerLine];
+		for (int py = 0; py < pixelHeight; py++) {
+			Arrays.fill(line, (byte)0);
+			for (int px = 0; px < pixelWidth; px++) {
+				if (isPixelOpen(x + px, y + py)) {
+					// Palette entry 1 is white
+					for (int i = px * scale; i < (px + 1) * scale; i++)
+						line[i >>> 3] |= 0x80 >>> (i & 7);
+				}
 			}
+			for (int i = 0; i < scale; i++)
+				System.arraycopy(line, 0, pixels, (py * scale + i) * bytesPerLine, bytesPerLine);
 		}
+		return img;
+	}
 
-		drawRect(img, IMAGE_WIDTH - 1, 0, 1, IMAGE_HEIGHT, WALL_COLOR);
-		drawRect(img, 0, IMAGE_HEIGHT - 1, IMAGE_WIDTH, 1, WALL_COLOR);
+	/**
+	 * @return true if pixel (x, y) of the image getMazeImage() draws is
+	 * white
+	 */
+	private boolean isPixelOpen(int x, int y) {
+		int imageWidth = 2 * width + 1;
+		int imageHeight = 2 * height + 1;
+		if ((x == 0 && y == 1) || (x == imageWidth - 1 && y == imageHeight - 2))
+			return true; // Entrance and exit
+		if (x == imageWidth - 1 || y == imageHeight - 1)
+			return false;
+		int cell = (y >>> 1) * width + (x >>> 1);
+		switch ((y & 1) << 1 | (x & 1)) {
+			case 0:
+				return false; // Corner
+			case 1:
+				return !hasWall(cell, NORTH);
+			case 2:
+				return !hasWall(cell, WEST);
+			default:
+				return true; // Cell
+		}
+	}
 
-		img.setRGB(0, 1, EMPTY_COLOR);
-		img.setRGB(IMAGE_WIDTH - 1, IMAGE_HEIGHT - 2, EMPTY_COLOR);
+	/**
+	 * Writes the picture getMazeImage() draws straight to a 1 bit BMP file,
+	 * without building the image in memory. If writing fails the file is
+	 * deleted rather than left half written.
+	 */
+	public void writeBmp(File file) throws IOException {
+		writeFile(file, BmpRowSink::new);
+	}
 
-		return img;
+	/**
+	 * Writes the picture getMazeImage() draws straight to a binary PBM
+	 * file, without building the image in memory. If writing fails the
+	 * file is deleted rather than left half written.
+	 */
+	public void writePbm(File file) throws IOException {
+		writeFile(file, PbmRowSink::new);
 	}
 
-	private static void drawRect(BufferedImage img, int x, int y, int width, int height, int color) {
-		for (int currX = x; currX < x + width; currX++) {
-			for (int currY = y; currY < y + height; currY++) {
-				img.setRGB(currX, currY, color);
+	/**
+	 * writeRows() to the sink sinkFor makes for a channel to file. The
+	 * channel is closed however writing ends, and the file deleted if it
+	 * ends with an exception.
+	 */
+	private void writeFile(File file, Function<FileChannel, MazeRowSink> sinkFor) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+		    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeRows(sinkFor.apply(channel));
+		} catch (IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(file.toPath());
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
 			}
+			throw e;
 		}
 	}
 
-	private boolean isInBounds(int r, int c) {
-		return r >= 0 && r < cells.length && c >= 0 && c < cells[r].length;
+	/**
+	 * Hands the maze to sink one row at a time, as EllerGenerator does.
+	 */
+	public void writeRows(MazeRowSink sink) throws IOException {
+		long[] rowWalls = new long[(width * DIR_COUNT + 63) >>> 6];
+		sink.start(width, height);
+		for (int r = 0; r < height; r++) {
+			copyRow(r, rowWalls);
+			sink.writeRow(rowWalls);
+		}
+		sink.finish();
 	}
 
-	private MazeCell getRandomCell() {
-		int row = (int)(Math.random() * cells.length);
-		int col = (int)(Math.random() * cells[row].length);
-		return cells[row][col];
+	/**
+	 * Copies the wall bits of a row into rowWalls, starting at bit 0.
+	 */
+	void copyRow(int row, long[] rowWalls) {
+		if (cells.getLayout() == Layout.ROW_MAJOR) {
+			copyBits(openWalls, (long)row * width * DIR_COUNT, rowWalls, width * DIR_COUNT);
+			return;
+		}
+		// Each run of slots is 16 bits of walls, aligned to 16 bits in
+		// both arrays, so it never straddles a word. The walls of padding
+		// slots are never opened.
+		Arrays.fill(rowWalls, 0, (width * DIR_COUNT + 63) >>> 6, 0);
+		int run = cells.runLength();
+		for (int col = 0; col < width; col += run) {
+			long from = (long)cells.slot(row, col) * DIR_COUNT;
+			long to = (long)col * DIR_COUNT;
+			long bits = (openWalls[(int)(from >>> 6)] >>> from) & ((1L << (run * DIR_COUNT)) - 1);
+			rowWalls[(int)(to >>> 6)] |= bits << to;
+		}
 	}
 
-	private static class MazeCell {
-		private int row, col;
-		private boolean walls[];
+	/**
+	 * ORs the wall bits of a row, laid out as copyRow() leaves them, into
+	 * the maze.
+	 */
+	void setRow(int row, long[] rowWalls) {
+		if (cells.getLayout() != Layout.ROW_MAJOR) {
+			int run = cells.runLength();
+			for (int col = 0; col < width; col += run) {
+				long from = (long)col * DIR_COUNT;
+				long to = (long)cells.slot(row, col) * DIR_COUNT;
+				long bits = (rowWalls[(int)(from >>> 6)] >>> from) & ((1L << (run * DIR_COUNT)) - 1);
+				if (col + run > width)
+					bits &= (1L << ((width - col) * DIR_COUNT)) - 1;
+				openWalls[(int)(to >>> 6)] |= bits << to;
+			}
+			return;
+		}
+		long start = (long)row * width * DIR_COUNT;
+		int numWords = (width * DIR_COUNT + 63) >>> 6;
+		for (int k = 0; k < numWords; k++) {
+			long bit = start + 64L * k;
+			int word = (int)(bit >>> 6);
+			int shift = (int)(bit & 63);
+			openWalls[word] |= rowWalls[k] << shift;
+			if (shift != 0 && word + 1 < openWalls.length)
+				openWalls[word + 1] |= rowWalls[k] >>> (64 - shift);
+		}
+	}
 
-		public MazeCell(int row, int col) {
-			this.row = row;
-			this.col = col;
-			walls = new boolean[2];
-			for (int i = 0; i < walls.length; i++)
-				walls[i] = true;
+	/**
+	 * Copies numBits bits of src starting at bit srcStart into dst
+	 * starting at bit 0, and clears the bits of dst's last word after them.
+	 */
+	static void copyBits(long[] src, long srcStart, long[] dst, int numBits) {
+		int numWords = (numBits + 63) >>> 6;
+		for (int k = 0; k < numWords; k++) {
+			long bit = srcStart + 64L * k;
+			int word = (int)(bit >>> 6);
+			int shift = (int)(bit & 63);
+			long bits = src[word] >>> shift;
+			if (shift != 0 && word + 1 < src.length)
+				bits |= src[word + 1] << (64 - shift);
+			dst[k] = bits;
 		}
+		if ((numBits & 63) != 0)
+			dst[numWords - 1] &= (1L << numBits) - 1;
+	}
+
+	private boolean isInBounds(int r, int c) {
+		return r >= 0 && r < height && c >= 0 && c < width;
 	}
 }
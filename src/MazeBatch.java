@@ -0,0 +1,406 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Generates many mazes of one size and writes them to a directory as BMP
+ * files, as a pipeline of stages connected by bounded queues:
+ * GENERATE -> SOLVE (optional) -> ENCODE -> WRITE.
+ * Each CPU stage has its own threads, so generating the next mazes
+ * overlaps with encoding and writing the last ones. A stage whose output
+ * queue is full waits, so a slow disk slows generation down instead of
+ * filling the heap with finished mazes.
+ *
+ * Unsolved mazes are encoded straight from their wall bits as writeBmp()
+ * does, so there is no separate rendering step for them. When solving,
+ * SOLVE renders the image and paints the path, and ENCODE writes the
+ * maze and the solved image.
+ *
+ * Writes run on virtual threads when the JVM has them (Java 21 and
+ * later) and on a small pool of platform threads otherwise.
+ */
+public class MazeBatch {
+
+	public enum Stage {
+		GENERATE, SOLVE, ENCODE, WRITE
+	}
+
+	private static final int IO_THREADS = 4;
+
+	private int width, height;
+	private Maze.Algorithm algorithm;
+	private boolean solve;
+	private File directory;
+	private int cpuThreads;
+	private int queueCapacity;
+
+	/**
+	 * Uses a thread per core for each CPU stage, and queues twice that
+	 * long.
+	 * @param solve Whether to also write the solution of every maze
+	 */
+	public MazeBatch(int width, int height, Maze.Algorithm algorithm, boolean solve, File directory) {
+		this(width, height, algorithm, solve, directory, Runtime.getRuntime().availableProcessors(),
+		    2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param cpuThreads The number of threads of each CPU stage
+	 * @param queueCapacity The number of mazes waiting between two stages,
+	 * and the most writes in progress at once
+	 */
+	public MazeBatch(int width, int height, Maze.Algorithm algorithm, boolean solve, File directory, int cpuThreads,
+	    int queueCapacity) {
+		if (cpuThreads < 1 || queueCapacity < 1)
+			throw new IllegalArgumentException("cpuThreads and queueCapacity must be >= 1");
+		this.width = width;
+		this.height = height;
+		this.algorithm = algorithm;
+		this.solve = solve;
+		this.directory = directory;
+		this.cpuThreads = cpuThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Generates and writes count mazes, maze_00000.bmp and up, and
+	 * maze_00000_solved.bmp and up if solving. Maze i is generated from
+	 * seed firstSeed + i, so any one of them can be generated again on
+	 * its own.
+	 * @return How long each stage took
+	 * @throws IOException if a file cannot be written. The batch stops at
+	 * the first failure of any stage.
+	 */
+	public Report run(int count, long firstSeed) throws IOException, InterruptedException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+		Report report = new Report();
+		Run run = new Run(report);
+		BlockingQueue<Item> generated = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Item> solved = solve ? new ArrayBlockingQueue<>(queueCapacity) : generated;
+		BlockingQueue<Item> encoded = new ArrayBlockingQueue<>(queueCapacity);
+
+		AtomicInteger next = new AtomicInteger();
+		run.startStage(Stage.GENERATE, null, generated, item -> {
+			int index = next.getAndIncrement();
+			if (index >= count)
+				return null;
+			Item result = new Item(index);
+			result.maze = new Maze(width, height, algorithm, firstSeed + index);
+			return result;
+		});
+		if (solve) {
+			run.startStage(Stage.SOLVE, generated, solved, item -> {
+				item.solution = new MazeSolver(item.maze.getMazeImage()).solve();
+				return item;
+			});
+		}
+		run.startStage(Stage.ENCODE, solved, encoded, item -> {
+			item.bytes.add(encodeMaze(item.maze));
+			item.names.add(String.format("maze_%05d.bmp", item.index));
+			if (item.solution != null) {
+				item.bytes.add(encodeImage(item.solution));
+				item.names.add(String.format("maze_%05d_solved.bmp", item.index));
+			}
+			item.maze = null;
+			item.solution = null;
+			return item;
+		});
+		run.threads.add(new Thread(() -> run.write(encoded), "maze-batch-write"));
+		// Every thread exists before any starts, so fail() can reach all
+		for (Thread t : run.threads)
+			t.start();
+
+		try {
+			for (Thread t : run.threads)
+				t.join();
+		} catch (InterruptedException e) {
+			run.fail(e);
+			throw e;
+		}
+		Throwable failure = run.failure.get();
+		if (failure instanceof IOException)
+			throw (IOException)failure;
+		if (failure instanceof InterruptedException)
+			throw (InterruptedException)failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException)failure;
+		if (failure != null)
+			throw new IllegalStateException(failure);
+		report.finish();
+		return report;
+	}
+
+	private static byte[] encodeMaze(Maze maze) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		maze.writeRows(new BmpRowSink(Channels.newChannel(out)));
+		return out.toByteArray();
+	}
+
+	private static byte[] encodeImage(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "bmp", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return An executor which starts a virtual thread per task, or a
+	 * fixed pool of IO_THREADS platform threads if the JVM has no virtual
+	 * threads
+	 */
+	private static ExecutorService newWriteExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			// Before Java 21, or a preview feature which is not enabled
+			return Executors.newFixedThreadPool(IO_THREADS, r -> {
+				Thread t = new Thread(r, "maze-batch-io");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * One maze on its way through the stages.
+	 */
+	private static class Item {
+		private int index;
+		private Maze maze;
+		private BufferedImage solution;
+		private List<byte[]> bytes = new ArrayList<>(2);
+		private List<String> names = new ArrayList<>(2);
+
+		private Item(int index) {
+			this.index = index;
+		}
+	}
+
+	private interface Step {
+		/**
+		 * @param item The next item, null for the first stage
+		 * @return The item for the next stage, null to stop the first stage
+		 */
+		public Item apply(Item item) throws Exception;
+	}
+
+	/**
+	 * The threads and shared state of one run().
+	 */
+	private class Run {
+		private Report report;
+		private List<Thread> threads = new ArrayList<>();
+		private AtomicReference<Throwable> failure = new AtomicReference<>();
+		// Passed on by the last thread of a stage to every thread of the next
+		private final Item END = new Item(-1);
+
+		private Run(Report report) {
+			this.report = report;
+		}
+
+		/**
+		 * Adds cpuThreads threads which apply step to every item of in
+		 * and put the results in out. Once all of them have seen the end
+		 * of in, the last one to finish puts an end marker in out for
+		 * every thread reading it.
+		 * @param in null for the first stage, whose step makes the items
+		 */
+		private void startStage(Stage stage, BlockingQueue<Item> in, BlockingQueue<Item> out, Step step) {
+			AtomicInteger running = new AtomicInteger(cpuThreads);
+			// The next stage is a CPU stage with cpuThreads threads, or the
+			// single writer thread
+			int readers = stage == Stage.ENCODE ? 1 : cpuThreads;
+			for (int i = 0; i < cpuThreads; i++) {
+				Thread t = new Thread(() -> {
+					try {
+						while (true) {
+							Item item = in == null ? null : in.take();
+							if (item == END)
+								break;
+							long start = System.nanoTime();
+							Item result = step.apply(item);
+							if (result == null)
+								break;
+							report.add(stage, System.nanoTime() - start, 0);
+							long waitStart = System.nanoTime();
+							out.put(result);
+							report.addBlocked(stage, System.nanoTime() - waitStart);
+						}
+						if (running.decrementAndGet() == 0) {
+							for (int r = 0; r < readers; r++)
+								out.put(END);
+						}
+					} catch (Throwable e) {
+						fail(e);
+					}
+				}, "maze-batch-" + stage.name().toLowerCase() + "-" + i);
+				threads.add(t);
+			}
+		}
+
+		/**
+		 * Takes encoded mazes from in and writes each file as its own
+		 * task. At most queueCapacity writes are in progress, after which
+		 * the queue fills up and holds back the stages before it.
+		 */
+		private void write(BlockingQueue<Item> in) {
+			ExecutorService executor = newWriteExecutor();
+			Semaphore inProgress = new Semaphore(queueCapacity);
+			try {
+				while (true) {
+					Item item = in.take();
+					if (item == END)
+						break;
+					for (int i = 0; i < item.names.size(); i++) {
+						File file = new File(directory, item.names.get(i));
+						byte[] bytes = item.bytes.get(i);
+						long waitStart = System.nanoTime();
+						inProgress.acquire();
+						report.addBlocked(Stage.WRITE, System.nanoTime() - waitStart);
+						executor.execute(() -> {
+							try {
+								long start = System.nanoTime();
+								Files.write(file.toPath(), bytes);
+								report.add(Stage.WRITE, System.nanoTime() - start, bytes.length);
+							} catch (Throwable e) {
+								fail(e);
+							} finally {
+								inProgress.release();
+							}
+						});
+					}
+				}
+				// Wait for the writes still in progress
+				inProgress.acquire(queueCapacity);
+			} catch (Throwable e) {
+				fail(e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		/**
+		 * Keeps the first failure and stops every thread.
+		 */
+		private void fail(Throwable e) {
+			if (failure.compareAndSet(null, e)) {
+				for (Thread t : threads) {
+					if (t != Thread.currentThread())
+						t.interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The work done by each stage of one run(). Items are mazes, except
+	 * for WRITE, where they are files.
+	 */
+	public static class Report {
+		private long start = System.nanoTime();
+		private long elapsed;
+		private LongAdder[] items = newAdders();
+		private LongAdder[] busy = newAdders();
+		private LongAdder[] blocked = newAdders();
+		private LongAdder[] bytes = newAdders();
+
+		private Report() {
+		}
+
+		private static LongAdder[] newAdders() {
+			LongAdder[] adders = new LongAdder[Stage.values().length];
+			for (int i = 0; i < adders.length; i++)
+				adders[i] = new LongAdder();
+			return adders;
+		}
+
+		private void add(Stage stage, long nanos, long numBytes) {
+			items[stage.ordinal()].increment();
+			busy[stage.ordinal()].add(nanos);
+			bytes[stage.ordinal()].add(numBytes);
+		}
+
+		private void addBlocked(Stage stage, long nanos) {
+			blocked[stage.ordinal()].add(nanos);
+		}
+
+		private void finish() {
+			elapsed = System.nanoTime() - start;
+		}
+
+		/**
+		 * @return The time from the start to the end of run()
+		 */
+		public double getSeconds() {
+			return elapsed / 1e9;
+		}
+
+		/**
+		 * @return The number of items the stage finished
+		 */
+		public long getItems(Stage stage) {
+			return items[stage.ordinal()].sum();
+		}
+
+		/**
+		 * @return The time the threads of the stage spent working, added
+		 * up over all of them
+		 */
+		public double getBusySeconds(Stage stage) {
+			return busy[stage.ordinal()].sum() / 1e9;
+		}
+
+		/**
+		 * @return The time the threads of the stage spent waiting for room
+		 * in the next queue (for WRITE, for a write to finish), added up
+		 * over all of them. High values mean a later stage is the
+		 * bottleneck.
+		 */
+		public double getBlockedSeconds(Stage stage) {
+			return blocked[stage.ordinal()].sum() / 1e9;
+		}
+
+		public long getBytes(Stage stage) {
+			return bytes[stage.ordinal()].sum();
+		}
+
+		/**
+		 * @return Items per second of busy time of one thread, which is
+		 * how fast the stage would go with a single thread
+		 */
+		public double getThroughput(Stage stage) {
+			double seconds = getBusySeconds(stage);
+			return seconds == 0 ? 0 : getItems(stage) / seconds;
+		}
+
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			s.append(String.format("Batch took %.3f s%n", getSeconds()));
+			for (Stage stage : Stage.values()) {
+				if (getItems(stage) == 0)
+					continue;
+				s.append(String.format("%-8s %7d items, busy %8.3f s, blocked %8.3f s, %9.1f items/s per thread", stage,
+				    getItems(stage), getBusySeconds(stage), getBlockedSeconds(stage), getThroughput(stage)));
+				if (getBytes(stage) > 0)
+					s.append(String.format(", %.1f MB/s", getBytes(stage) / 1e6 / getBusySeconds(stage)));
+				s.append(String.format("%n"));
+			}
+			return s.toString();
+		}
+	}
+}
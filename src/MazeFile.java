@@ -0,0 +1,338 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Saves and loads mazes in a compact binary format: the same two wall
+ * bits per cell Maze keeps in memory, so a cell costs 2 bits on disk
+ * where a 1 bit BMP spends 4 pixels on it.
+ *
+ * The file is a 40 byte header, a block index, and the rows of the maze
+ * in blocks of about 1 MB, all little-endian. Each row is padded to
+ * whole longs as MazeRowSink passes them. A block is deflated when that
+ * makes it smaller and stored as it is otherwise, and carries a CRC32C
+ * of its stored bytes. The index holds the file offset, stored length
+ * and checksum of every block, so any band of rows can be read without
+ * touching the rest of the file.
+ */
+public class MazeFile {
+
+	private static final byte[] MAGIC = { 'M', 'A', 'Z', 'E' };
+	private static final short VERSION = 1;
+	private static final short FLAG_COMPRESSED = 1;
+	private static final short FLAG_SEED = 2;
+	private static final int HEADER_SIZE = 40;
+	private static final int INDEX_ENTRY_SIZE = 16;
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	private MazeFile() {
+	}
+
+	/**
+	 * Saves maze to file, replacing it.
+	 * @param compress whether to try deflating each block
+	 */
+	public static void save(Maze maze, File file, boolean compress) throws IOException {
+		maze.writeRows(new Writer(file, compress, maze.getAlgorithm(), maze.getSeed()));
+	}
+
+	public static Maze load(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Header header = new Header(channel, file);
+			Maze maze = new Maze(header.width, header.height, header.algorithm, header.seed);
+			long[] rowWalls = new long[header.rowWords];
+			for (int block = 0; block < header.numBlocks; block++) {
+				LongBuffer rows = header.readBlock(channel, block);
+				int firstRow = block * header.rowsPerBlock;
+				for (int r = firstRow; r < Math.min(firstRow + header.rowsPerBlock, header.height); r++) {
+					rows.get(rowWalls);
+					maze.setRow(r, rowWalls);
+				}
+			}
+			return maze;
+		}
+	}
+
+	/**
+	 * Loads the cells [top, top + rows) x [left, left + cols) of a saved
+	 * maze, reading only the blocks which hold those rows. The walls on
+	 * the border of the region are closed, so the result is the part of
+	 * the maze inside it, which need not be connected.
+	 * Like any Maze, the region must be at least 2 x 2 cells.
+	 */
+	public static Maze loadRegion(File file, int top, int left, int rows, int cols) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Header header = new Header(channel, file);
+			if (rows < 2 || cols < 2)
+				throw new IllegalArgumentException("The region must be at least 2 x 2 cells.");
+			if (top < 0 || left < 0 || (long)top + rows > header.height || (long)left + cols > header.width)
+				throw new IllegalArgumentException("The region must lie inside the maze.");
+			Maze region = new Maze(cols, rows, null, OptionalLong.empty());
+			long[] rowWalls = new long[header.rowWords];
+			long[] regionWalls = new long[(cols * Maze.DIR_COUNT + 63) >>> 6];
+			int firstBlock = top / header.rowsPerBlock;
+			int lastBlock = (top + rows - 1) / header.rowsPerBlock;
+			for (int block = firstBlock; block <= lastBlock; block++) {
+				LongBuffer blockRows = header.readBlock(channel, block);
+				int firstRow = block * header.rowsPerBlock;
+				int start = Math.max(top, firstRow);
+				int end = Math.min(top + rows, firstRow + header.rowsPerBlock);
+				for (int r = start; r < end; r++) {
+					blockRows.get((r - firstRow) * header.rowWords, rowWalls);
+					Maze.copyBits(rowWalls, (long)left * Maze.DIR_COUNT, regionWalls, cols * Maze.DIR_COUNT);
+					// Close the walls to cells outside the region
+					regionWalls[0] &= ~(1L << Maze.WEST);
+					if (r == top) {
+						for (int k = 0; k < regionWalls.length; k++)
+							regionWalls[k] &= 0xAAAAAAAAAAAAAAAAL;
+					}
+					region.setRow(r - top, regionWalls);
+				}
+			}
+			return region;
+		}
+	}
+
+	/**
+	 * Writes a maze to a file as its rows arrive, from Maze.writeRows() or
+	 * EllerGenerator. Only one block is held in memory. The header and
+	 * index are written last, once every block's place is known. If
+	 * writeRow() or finish() throws, the file is closed and deleted.
+	 */
+	public static class Writer implements MazeRowSink {
+		private File file;
+		private boolean compress;
+		private Maze.Algorithm algorithm;
+		private OptionalLong seed;
+
+		private FileChannel channel;
+		private int width, height;
+		private int rowWords, rowsPerBlock, numBlocks;
+		private ByteBuffer block;
+		private LongBuffer blockRows;
+		private int rowsInBlock;
+		private ByteBuffer index;
+		private long position;
+		private Deflater deflater;
+		private byte[] compressed;
+		private CRC32C crc = new CRC32C();
+
+		/**
+		 * @param algorithm recorded in the header, or null if unknown
+		 * @param seed recorded in the header if present
+		 */
+		public Writer(File file, boolean compress, Maze.Algorithm algorithm, OptionalLong seed) {
+			this.file = file;
+			this.compress = compress;
+			this.algorithm = algorithm;
+			this.seed = seed;
+		}
+
+		public void start(int width, int height) throws IOException {
+			this.width = width;
+			this.height = height;
+			rowWords = (int)(((long)width * Maze.DIR_COUNT + 63) >>> 6);
+			rowsPerBlock = Math.max(1, BLOCK_SIZE / (rowWords * 8));
+			numBlocks = (int)(((long)height + rowsPerBlock - 1) / rowsPerBlock);
+			block = ByteBuffer.allocate(rowsPerBlock * rowWords * 8).order(ByteOrder.LITTLE_ENDIAN);
+			blockRows = block.asLongBuffer();
+			index = ByteBuffer.allocate(numBlocks * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (compress) {
+				deflater = new Deflater(Deflater.BEST_SPEED);
+				compressed = new byte[block.capacity()];
+			}
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			    StandardOpenOption.TRUNCATE_EXISTING);
+			position = HEADER_SIZE + (long)numBlocks * INDEX_ENTRY_SIZE;
+			rowsInBlock = 0;
+		}
+
+		public void writeRow(long[] openWalls) throws IOException {
+			try {
+				blockRows.put(openWalls, 0, rowWords);
+				if (++rowsInBlock == rowsPerBlock)
+					writeBlock();
+			} catch (IOException | RuntimeException e) {
+				abort(e);
+				throw e;
+			}
+		}
+
+		public void finish() throws IOException {
+			try {
+				if (rowsInBlock > 0)
+					writeBlock();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.put(MAGIC);
+				header.putShort(VERSION);
+				header.putShort((short)((compress ? FLAG_COMPRESSED : 0) | (seed.isPresent() ? FLAG_SEED : 0)));
+				header.putInt(width);
+				header.putInt(height);
+				header.putLong(seed.orElse(0));
+				header.put((byte)(algorithm == null ? 0 : algorithm.ordinal() + 1));
+				header.position(header.position() + 3);
+				header.putInt(rowsPerBlock);
+				header.putInt(numBlocks);
+				header.clear();
+				writeFully(header, 0);
+				index.clear();
+				writeFully(index, HEADER_SIZE);
+			} catch (IOException | RuntimeException e) {
+				abort(e);
+				throw e;
+			}
+			close();
+		}
+
+		private void close() throws IOException {
+			try {
+				channel.close();
+			} finally {
+				if (deflater != null)
+					deflater.end();
+			}
+		}
+
+		/**
+		 * Closes the channel and deletes the half written file after e,
+		 * adding any exception doing so throws to e.
+		 */
+		private void abort(Exception e) {
+			try {
+				close();
+				Files.deleteIfExists(file.toPath());
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			int rawLength = rowsInBlock * rowWords * 8;
+			byte[] stored = block.array();
+			int storedLength = rawLength;
+			if (compress) {
+				deflater.reset();
+				deflater.setInput(stored, 0, rawLength);
+				deflater.finish();
+				int length = deflater.deflate(compressed, 0, rawLength);
+				// Only keep it if it finished in fewer bytes than the raw block
+				if (deflater.finished() && length < rawLength) {
+					stored = compressed;
+					storedLength = length;
+				}
+			}
+			crc.reset();
+			crc.update(stored, 0, storedLength);
+			writeFully(ByteBuffer.wrap(stored, 0, storedLength), position);
+			index.putLong(position);
+			index.putInt(storedLength);
+			index.putInt((int)crc.getValue());
+			position += storedLength;
+			blockRows.clear();
+			rowsInBlock = 0;
+		}
+
+		private void writeFully(ByteBuffer buffer, long at) throws IOException {
+			while (buffer.hasRemaining())
+				at += channel.write(buffer, at);
+		}
+	}
+
+	/**
+	 * The header and block index of an open file.
+	 */
+	private static class Header {
+		private File file;
+		private int width, height;
+		private boolean compressed;
+		private OptionalLong seed;
+		private Maze.Algorithm algorithm;
+		private int rowWords, rowsPerBlock, numBlocks;
+		private ByteBuffer index;
+
+		public Header(FileChannel channel, File file) throws IOException {
+			this.file = file;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || header.getShort() != VERSION)
+				throw new IOException(file + " is not a maze file.");
+			short flags = header.getShort();
+			compressed = (flags & FLAG_COMPRESSED) != 0;
+			width = header.getInt();
+			height = header.getInt();
+			long seedValue = header.getLong();
+			seed = (flags & FLAG_SEED) != 0 ? OptionalLong.of(seedValue) : OptionalLong.empty();
+			int generator = header.get();
+			header.position(header.position() + 3);
+			rowsPerBlock = header.getInt();
+			numBlocks = header.getInt();
+			Maze.Algorithm[] algorithms = Maze.Algorithm.values();
+			algorithm = generator > 0 && generator <= algorithms.length ? algorithms[generator - 1] : null;
+			if (width < 2 || height < 2 || rowsPerBlock < 1 || numBlocks != (int)(((long)height + rowsPerBlock - 1) / rowsPerBlock))
+				throw new IOException(file + " has a damaged header.");
+			rowWords = (int)(((long)width * Maze.DIR_COUNT + 63) >>> 6);
+			index = ByteBuffer.allocate(numBlocks * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, index, HEADER_SIZE);
+		}
+
+		/**
+		 * Reads, checks and if need be inflates one block.
+		 * @return The rows of the block
+		 */
+		public LongBuffer readBlock(FileChannel channel, int block) throws IOException {
+			long offset = index.getLong(block * INDEX_ENTRY_SIZE);
+			int storedLength = index.getInt(block * INDEX_ENTRY_SIZE + 8);
+			int checksum = index.getInt(block * INDEX_ENTRY_SIZE + 12);
+			int numRows = Math.min(rowsPerBlock, height - block * rowsPerBlock);
+			int rawLength = numRows * rowWords * 8;
+			if (storedLength < 0 || storedLength > rawLength)
+				throw new IOException("Block " + block + " of " + file + " is damaged.");
+			byte[] stored = new byte[storedLength];
+			readFully(channel, ByteBuffer.wrap(stored), offset);
+			CRC32C crc = new CRC32C();
+			crc.update(stored);
+			if ((int)crc.getValue() != checksum)
+				throw new IOException("Block " + block + " of " + file + " fails its checksum.");
+			byte[] raw = stored;
+			if (storedLength < rawLength) {
+				if (!compressed)
+					throw new IOException("Block " + block + " of " + file + " is damaged.");
+				raw = new byte[rawLength];
+				Inflater inflater = new Inflater();
+				try {
+					inflater.setInput(stored);
+					if (inflater.inflate(raw) != rawLength || !inflater.finished())
+						throw new IOException("Block " + block + " of " + file + " is damaged.");
+				} catch (DataFormatException e) {
+					throw new IOException("Block " + block + " of " + file + " is damaged.", e);
+				} finally {
+					inflater.end();
+				}
+			}
+			return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		}
+
+		private static void readFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, at);
+				if (read < 0)
+					throw new IOException("Unexpected end of maze file.");
+				at += read;
+			}
+			buffer.flip();
+		}
+	}
+}
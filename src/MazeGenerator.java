@@ -0,0 +1,18 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * A way of carving a perfect maze: every cell reachable from every other
+ * by exactly one path. Maze runs the generator for every maze it is given
+ * and every Maze.Algorithm has one.
+ * Implementations make all their random choices with the generator they
+ * are passed and keep no state between calls, so one instance can
+ * generate many mazes, on several threads at once.
+ */
+public interface MazeGenerator {
+
+	/**
+	 * Knocks down walls of maze, which starts with every wall closed,
+	 * until it is a perfect maze.
+	 */
+	public void generate(Maze maze, RandomGenerator random);
+}
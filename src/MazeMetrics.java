@@ -0,0 +1,294 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Counters for maze generation, the disjoint sets and the solver, turned
+ * on by running with -Dmazes.metrics=true. When they are off, ENABLED is
+ * a constant false and the JIT removes the counting code, so it costs
+ * nothing. When they are on, every generated maze and every search adds
+ * its counts to the totals returned by snapshot(), and is also committed
+ * as a JFR event (mazes.Generation, mazes.Search) if a flight recording
+ * is running.
+ */
+public final class MazeMetrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("mazes.metrics");
+
+	// Find path lengths are counted in power of two buckets: bucket 0 is
+	// length 0, bucket k is lengths 2^(k-1) to 2^k - 1
+	static final int FIND_LENGTH_BUCKETS = 32;
+
+	private static final LongAdder mazes = new LongAdder();
+	private static final LongAdder wallPicks = new LongAdder();
+	private static final LongAdder rejectedPicks = new LongAdder();
+	private static final LongAdder unions = new LongAdder();
+	private static final LongAdder finds = new LongAdder();
+	private static final LongAdder compressionSteps = new LongAdder();
+	private static final LongAdder[] findLengths = new LongAdder[FIND_LENGTH_BUCKETS];
+	private static final LongAdder searches = new LongAdder();
+	private static final LongAdder expandedNodes = new LongAdder();
+	private static final LongAdder reopenedNodes = new LongAdder();
+	private static final LongAccumulator maxOpenSetSize = new LongAccumulator(Math::max, 0);
+
+	static {
+		for (int i = 0; i < FIND_LENGTH_BUCKETS; i++)
+			findLengths[i] = new LongAdder();
+	}
+
+	private MazeMetrics() {
+	}
+
+	/**
+	 * @return The totals counted since the program started or since the
+	 * last reset(). All 0 unless ENABLED.
+	 */
+	public static Snapshot snapshot() {
+		long[] lengths = new long[FIND_LENGTH_BUCKETS];
+		for (int i = 0; i < FIND_LENGTH_BUCKETS; i++)
+			lengths[i] = findLengths[i].sum();
+		return new Snapshot(mazes.sum(), wallPicks.sum(), rejectedPicks.sum(), unions.sum(), finds.sum(),
+		    compressionSteps.sum(), lengths, searches.sum(), expandedNodes.sum(), maxOpenSetSize.get(), reopenedNodes.sum());
+	}
+
+	/**
+	 * Sets every total back to 0. Counts added while this runs may be
+	 * lost.
+	 */
+	public static void reset() {
+		for (LongAdder a : new LongAdder[] { mazes, wallPicks, rejectedPicks, unions, finds, compressionSteps, searches,
+		    expandedNodes, reopenedNodes })
+			a.reset();
+		for (LongAdder a : findLengths)
+			a.reset();
+		maxOpenSetSize.reset();
+	}
+
+	/**
+	 * Counts one find() which followed length parent links.
+	 */
+	static void recordFindLength(int length) {
+		findLengths[32 - Integer.numberOfLeadingZeros(length)].increment();
+	}
+
+	/**
+	 * Starts timing the generation of maze. Pass the result to the
+	 * generation methods to count into, then to finish().
+	 */
+	static GenerationEvent startGeneration(Maze maze, MazeGenerator generator) {
+		GenerationEvent event = new GenerationEvent();
+		event.algorithm = maze.getAlgorithm() != null ? maze.getAlgorithm().name() : generator.getClass().getSimpleName();
+		event.width = maze.getWidth();
+		event.height = maze.getHeight();
+		event.begin();
+		return event;
+	}
+
+	static void finish(GenerationEvent event) {
+		event.end();
+		mazes.increment();
+		wallPicks.add(event.wallPicks);
+		rejectedPicks.add(event.rejectedPicks);
+		unions.add(event.unions);
+		finds.add(event.finds);
+		compressionSteps.add(event.compressionSteps);
+		if (event.shouldCommit())
+			event.commit();
+	}
+
+	static SearchEvent startSearch(MazeSolver.Strategy strategy, PassabilityGrid grid) {
+		SearchEvent event = new SearchEvent();
+		event.strategy = String.valueOf(strategy);
+		event.width = grid.getWidth();
+		event.height = grid.getHeight();
+		event.begin();
+		return event;
+	}
+
+	static void finish(SearchEvent event, SearchStrategy search, int[] path) {
+		event.end();
+		event.expandedNodes = search.getExpandedNodes();
+		event.maxOpenSetSize = search.getMaxOpenSetSize();
+		event.reopenedNodes = search.getReopenedNodes();
+		event.pathLength = path == null ? -1 : path.length;
+		searches.increment();
+		expandedNodes.add(event.expandedNodes);
+		reopenedNodes.add(event.reopenedNodes);
+		maxOpenSetSize.accumulate(event.maxOpenSetSize);
+		if (event.shouldCommit())
+			event.commit();
+	}
+
+	/**
+	 * The counts of one generated maze. The parallel algorithms add to it
+	 * from several threads, so it is only changed through add().
+	 */
+	@Name("mazes.Generation")
+	@Label("Maze Generation")
+	@Category("Mazes")
+	static class GenerationEvent extends Event {
+		@Label("Algorithm")
+		String algorithm;
+		@Label("Width")
+		int width;
+		@Label("Height")
+		int height;
+		@Label("Wall Picks")
+		@Description("Inner walls picked to be knocked down")
+		long wallPicks;
+		@Label("Rejected Picks")
+		@Description("Picked walls left standing because both cells were already in the same set")
+		long rejectedPicks;
+		@Label("Unions")
+		long unions;
+		@Label("Finds")
+		long finds;
+		@Label("Compression Steps")
+		@Description("Parent links moved closer to the root by find()")
+		long compressionSteps;
+
+		/**
+		 * @param picks The walls picked, each of which either joined two
+		 * sets or was rejected
+		 */
+		void add(long picks, IntDisjointSets sets) {
+			add(picks, sets.size() - sets.getNumberOfSets(), sets.getFindCount(), sets.getCompressionSteps());
+		}
+
+		synchronized void add(long picks, long joined, long finds, long compressionSteps) {
+			wallPicks += picks;
+			rejectedPicks += picks - joined;
+			unions += joined;
+			this.finds += finds;
+			this.compressionSteps += compressionSteps;
+		}
+	}
+
+	@Name("mazes.Search")
+	@Label("Maze Search")
+	@Category("Mazes")
+	static class SearchEvent extends Event {
+		@Label("Strategy")
+		String strategy;
+		@Label("Width")
+		int width;
+		@Label("Height")
+		int height;
+		@Label("Expanded Nodes")
+		int expandedNodes;
+		@Label("Max Open Set Size")
+		int maxOpenSetSize;
+		@Label("Reopened Nodes")
+		@Description("Pushes of a pixel which was already in the open set with a higher cost")
+		int reopenedNodes;
+		@Label("Path Length")
+		@Description("Pixels on the path found, -1 if there was none")
+		int pathLength;
+	}
+
+	/**
+	 * The totals at one point in time.
+	 */
+	public static final class Snapshot {
+		private final long mazes, wallPicks, rejectedPicks, unions, finds, compressionSteps;
+		private final long[] findLengths;
+		private final long searches, expandedNodes, maxOpenSetSize, reopenedNodes;
+
+		private Snapshot(long mazes, long wallPicks, long rejectedPicks, long unions, long finds, long compressionSteps,
+		    long[] findLengths, long searches, long expandedNodes, long maxOpenSetSize, long reopenedNodes) {
+			this.mazes = mazes;
+			this.wallPicks = wallPicks;
+			this.rejectedPicks = rejectedPicks;
+			this.unions = unions;
+			this.finds = finds;
+			this.compressionSteps = compressionSteps;
+			this.findLengths = findLengths;
+			this.searches = searches;
+			this.expandedNodes = expandedNodes;
+			this.maxOpenSetSize = maxOpenSetSize;
+			this.reopenedNodes = reopenedNodes;
+		}
+
+		public long getMazesGenerated() {
+			return mazes;
+		}
+
+		public long getWallPicks() {
+			return wallPicks;
+		}
+
+		/**
+		 * @return The picked walls left standing because both of their
+		 * cells were already in the same set
+		 */
+		public long getRejectedPicks() {
+			return rejectedPicks;
+		}
+
+		public long getUnions() {
+			return unions;
+		}
+
+		/**
+		 * @return The finds made by the disjoint sets of the mazes
+		 * generated, including the ones inside every union
+		 */
+		public long getFinds() {
+			return finds;
+		}
+
+		public long getCompressionSteps() {
+			return compressionSteps;
+		}
+
+		/**
+		 * @return For every bucket k, the number of finds by any disjoint
+		 * sets which followed 2^(k-1) to 2^k - 1 parent links (0 links for
+		 * bucket 0)
+		 */
+		public long[] getFindLengthHistogram() {
+			return findLengths.clone();
+		}
+
+		public long getSearches() {
+			return searches;
+		}
+
+		public long getExpandedNodes() {
+			return expandedNodes;
+		}
+
+		/**
+		 * @return The largest open set of any single search
+		 */
+		public long getMaxOpenSetSize() {
+			return maxOpenSetSize;
+		}
+
+		public long getReopenedNodes() {
+			return reopenedNodes;
+		}
+
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			s.append("Mazes generated: ").append(mazes).append('\n');
+			s.append("Wall picks: ").append(wallPicks).append(", rejected: ").append(rejectedPicks)
+			    .append(", unions: ").append(unions).append('\n');
+			s.append("Finds: ").append(finds).append(", compression steps: ").append(compressionSteps).append('\n');
+			s.append("Find path lengths:");
+			for (int k = 0; k < findLengths.length; k++) {
+				if (findLengths[k] != 0)
+					s.append(' ').append(k == 0 ? 0 : 1L << (k - 1)).append("+: ").append(findLengths[k]);
+			}
+			s.append('\n');
+			s.append("Searches: ").append(searches).append(", expanded: ").append(expandedNodes)
+			    .append(", reopened: ").append(reopenedNodes).append(", max open set: ").append(maxOpenSetSize);
+			return s.toString();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+import java.io.IOException;
+
+/**
+ * Receives a maze one row of cells at a time, top to bottom, so a maze
+ * never has to be held in memory as a whole.
+ */
+public interface MazeRowSink {
+
+	/**
+	 * Called once before the first row.
+	 */
+	public void start(int width, int height) throws IOException;
+
+	/**
+	 * Called once per row of cells, in order.
+	 * @param openWalls The walls of the row with the same two bits per
+	 * cell as Maze: bit col * 2 + NORTH or col * 2 + WEST is set if that
+	 * wall of the cell is open. Bits past the last cell are 0. The array
+	 * is reused for the next row, so it must not be kept.
+	 */
+	public void writeRow(long[] openWalls) throws IOException;
+
+	/**
+	 * Called once after the last row.
+	 */
+	public void finish() throws IOException;
+}
@@ -1,156 +1,328 @@
 import java.awt.image.*;
-import java.awt.Graphics;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
+/**
+ * Solves maze images with a choice of search strategies, A* by default.
+ * Pixels are numbered y * width + x and the search state is kept in
+ * arrays indexed by pixel number. solve() goes from the entrance at
+ * (0, 1) to the exit at (width - 1, height - 2), findPath() and
+ * findPaths() answer arbitrary point to point queries.
+ */
 public class MazeSolver {
 
+	/**
+	 * The SearchStrategy used on the pixels of the maze. Which one
+	 * expands the fewest pixels depends on the shape of the maze, see
+	 * getExpandedNodes().
+	 */
+	public enum Strategy {
+		/**
+		 * A* from start to goal, see AStarSearch.
+		 */
+		A_STAR,
+		/**
+		 * A* from both ends until the frontiers meet, see
+		 * BidirectionalSearch.
+		 */
+		BIDIRECTIONAL,
+		/**
+		 * A* over the jump points of straight corridors, see
+		 * JumpPointSearch.
+		 */
+		JUMP_POINT
+	}
+
 	private BufferedImage mazeImage;
+	private PassabilityGrid grid;
+	private Strategy strategy;
+	private Supplier<OpenSet> openSets;
 	private static final int SOLVE_COLOR = 0xFFFF0000;
-	private static final int EMPTY_COLOR = 0xFFFFFFFF;
+	/**
+	 * Directions of the moves returned by encodeMoves()
+	 */
+	public static final byte UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+
+	private SearchStrategy search;
+	private CorridorGraph reducedGraph;
 
 	public MazeSolver(BufferedImage mazeImage) {
+		this(mazeImage, Strategy.A_STAR);
+	}
+
+	public MazeSolver(BufferedImage mazeImage, Strategy strategy) {
+		this(mazeImage, strategy, BucketQueue::new);
+	}
+
+	public MazeSolver(BufferedImage mazeImage, Supplier<OpenSet> openSets) {
+		this(mazeImage, Strategy.A_STAR, openSets);
+	}
+
+	/**
+	 * @param openSets Creates the queues of pixels to expand, as many as
+	 * the strategy needs per thread searching. They must accept monotone
+	 * keys, as BucketQueue and RadixHeap do.
+	 */
+	public MazeSolver(BufferedImage mazeImage, Strategy strategy, Supplier<OpenSet> openSets) {
+		this(BitmapGrid.fromImage(mazeImage), strategy, openSets);
 		this.mazeImage = mazeImage;
 	}
 
-	public BufferedImage solve() {
-		int mazeWidth = mazeImage.getWidth();
-		int mazeHeight = mazeImage.getHeight();
-		CellPosition exitPosition = new CellPosition(mazeWidth - 1, mazeHeight - 2);
-		Comparator<Cell> heuristic = new DistanceHeuristic(exitPosition);
-
-		HashMap<CellPosition, Cell> cells = new HashMap<>();
-		CellPosition startPosition = new CellPosition(0, 1);
-		Cell start = new Cell(startPosition, 0);
-		cells.put(startPosition, start);
-
-		PriorityQueue<Cell> pq = new PriorityQueue<Cell>(heuristic);
-		pq.add(start);
-
-		while (!pq.isEmpty()) {
-			Cell current = pq.remove();
-			current.isInQueue = false;
-
-			if (current.position.equals(exitPosition)) {
-				// Found the exit
-				return drawPath(current);
-			}
+	/**
+	 * Solves a maze which is not held as an image, such as a
+	 * MappedBmpGrid. solve() needs an image to draw on, so use
+	 * solvePath() instead.
+	 */
+	public MazeSolver(PassabilityGrid grid, Strategy strategy) {
+		this(grid, strategy, BucketQueue::new);
+	}
 
-			for (Cell neighbor : getNeighbors(current, cells)) {
-				double newCostHere = current.costToHere + 1;
-				if (newCostHere < neighbor.costToHere) {
-					neighbor.previous = current;
-					neighbor.costToHere = newCostHere;
-					if (!neighbor.isInQueue) {
-						neighbor.isInQueue = true;
-						pq.add(neighbor);
-					}
-				}
-			}
+	public MazeSolver(PassabilityGrid grid, Strategy strategy, Supplier<OpenSet> openSets) {
+		this.grid = grid;
+		this.strategy = strategy;
+		this.openSets = openSets;
+		if ((long)grid.getWidth() * grid.getHeight() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Maze image is too large to solve.");
+	}
+
+	/**
+	 * Solves another maze image from now on. When it is the same size as
+	 * the last one, its pixels are read into the grid already held and
+	 * the search keeps its arrays and open sets, so solving maze after
+	 * maze of one size allocates only the paths returned and the images
+	 * solve() draws them on. Any preprocess() is dropped.
+	 */
+	public void setMaze(BufferedImage mazeImage) {
+		reducedGraph = null;
+		if (grid instanceof BitmapGrid && grid.getWidth() == mazeImage.getWidth() && grid.getHeight() == mazeImage.getHeight()) {
+			((BitmapGrid)grid).read(mazeImage);
+		} else {
+			if ((long)mazeImage.getWidth() * mazeImage.getHeight() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Maze image is too large to solve.");
+			grid = BitmapGrid.fromImage(mazeImage);
+			search = null;
 		}
+		this.mazeImage = mazeImage;
+	}
 
-		return null;
-	}
-
-	private ArrayList<Cell> getNeighbors(Cell current, HashMap<CellPosition, Cell> cells) {
-		ArrayList<Cell> result = new ArrayList<Cell>();
-		final int[][] DIR_VECTORS = { { 0, 1 }, { 0, -1 }, { 1, 0 }, { -1, 0 } };
-		int currX = current.position.x;
-		int currY = current.position.y;
-		for (int[] dir : DIR_VECTORS) {
-			CellPosition neighborPos = new CellPosition(currX + dir[0], currY + dir[1]);
-			if (neighborPos.isInBounds(mazeImage)) {
-				int color = mazeImage.getRGB(neighborPos.x, neighborPos.y);
-				if (color == EMPTY_COLOR) {
-					Cell neighbor = cells.get(neighborPos);
-					if (neighbor == null) {
-						neighbor = new Cell(neighborPos, Double.POSITIVE_INFINITY);
-						cells.put(neighborPos, neighbor);
-					}
-					result.add(neighbor);
-				}
-			}
+	/**
+	 * Reduces the maze to a CorridorGraph between its entrance and exit.
+	 * Worth it when the same maze is solved more than once: later calls
+	 * to solve() search the much smaller graph instead of every pixel.
+	 */
+	public void preprocess() {
+		if (reducedGraph == null) {
+			reducedGraph = new CorridorGraph(grid, entrance(), exit());
 		}
-		return result;
 	}
 
-	private BufferedImage drawPath(Cell lastCell) {
-		BufferedImage result = createCopy(mazeImage);
-		result.setRGB(0, 1, SOLVE_COLOR);
-		Cell curr = lastCell;
-		while (curr != null) {
-			result.setRGB(curr.position.x, curr.position.y, SOLVE_COLOR);
-			curr = curr.previous;
+	public BufferedImage solve() {
+		if (mazeImage == null)
+			throw new IllegalStateException("There is no maze image to draw on, use solvePath().");
+		int[] path = solvePath();
+		if (path == null) {
+			return null;
 		}
-		return result;
+		return drawPath(path);
 	}
 
-	private BufferedImage createCopy(BufferedImage img) {
-		BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
-		Graphics g = copy.getGraphics();
-		g.drawImage(img, 0, 0, null);
-		g.dispose();
-		return copy;
+	/**
+	 * @return The pixels on a shortest path from the entrance to the exit,
+	 * numbered y * width + x, or null if there is none
+	 */
+	public int[] solvePath() {
+		return findPath(entrance(), exit());
 	}
 
-	private static class Cell {
-		private Cell previous;
-		private CellPosition position;
+	/**
+	 * @return The number of pixels expanded by the last solve() or
+	 * findPath() which searched the image, 0 if none has yet. Queries
+	 * answered by the preprocessed graph do not count.
+	 */
+	public int getExpandedNodes() {
+		return search == null ? 0 : search.getExpandedNodes();
+	}
 
-		private double costToHere;
-		private boolean isInQueue;
+	/**
+	 * Finds a shortest path between two open pixels.
+	 * @return The pixels on the path, numbered y * width + x, from start
+	 * to goal inclusive, or null if goal cannot be reached
+	 */
+	public int[] findPath(int startX, int startY, int goalX, int goalY) {
+		checkOpen(startX, startY);
+		checkOpen(goalX, goalY);
+		int width = grid.getWidth();
+		return findPath(startY * width + startX, goalY * width + goalX);
+	}
 
-		public Cell(CellPosition pos, double costToHere) {
-			this.position = pos;
-			this.costToHere = costToHere;
+	/**
+	 * Answers many queries at once. The queries are split between
+	 * ForkJoin tasks, and each task reuses one SearchStrategy for all of
+	 * its queries.
+	 * @param queries Each query is { startX, startY, goalX, goalY }
+	 * @return For each query, the path findPath() would return
+	 */
+	public int[][] findPaths(int[][] queries) {
+		int width = grid.getWidth();
+		for (int[] q : queries) {
+			checkOpen(q[0], q[1]);
+			checkOpen(q[2], q[3]);
 		}
+		int[][] paths = new int[queries.length][];
+		int numTasks = Math.min(queries.length, 4 * ParallelTasks.parallelism());
+		ParallelTasks.parallelFor(numTasks, task -> {
+			SearchStrategy taskSearch = newSearch();
+			int end = (int)((long)queries.length * (task + 1) / numTasks);
+			for (int i = (int)((long)queries.length * task / numTasks); i < end; i++) {
+				int[] q = queries[i];
+				paths[i] = runSearch(taskSearch, q[1] * width + q[0], q[3] * width + q[2]);
+			}
+		});
+		return paths;
+	}
 
-		public double distanceTo(CellPosition other) {
-			return Math.sqrt(Math.pow(position.x - other.x, 2) + Math.pow(position.y - other.y, 2));
+	/**
+	 * Run-length encodes a path as moves. Each move is
+	 * (steps << 2) | direction, where direction is UP, DOWN, LEFT or RIGHT
+	 * and steps is how many times it is repeated.
+	 * @param path Pixels numbered y * width + x, as returned by findPath()
+	 */
+	public static int[] encodeMoves(int[] path, int width) {
+		int[] moves = new int[Math.max(path.length - 1, 0)];
+		int numMoves = 0;
+		for (int i = 1; i < path.length; i++) {
+			int diff = path[i] - path[i - 1];
+			int dir = diff == -width ? UP : diff == width ? DOWN : diff == -1 ? LEFT : RIGHT;
+			if (numMoves > 0 && (moves[numMoves - 1] & 3) == dir)
+				moves[numMoves - 1] += 1 << 2;
+			else
+				moves[numMoves++] = (1 << 2) | dir;
 		}
+		return Arrays.copyOf(moves, numMoves);
+	}
 
-		public boolean equals(Object o) {
-			if (o instanceof Cell)
-				return ((Cell)o).position.equals(position);
-			return false;
+	/**
+	 * Expands moves from encodeMoves() back into the pixels of the path.
+	 */
+	public static int[] decodeMoves(int start, int[] moves, int width) {
+		int length = 1;
+		for (int move : moves)
+			length += move >>> 2;
+		int[] path = new int[length];
+		path[0] = start;
+		int i = 1;
+		for (int move : moves) {
+			int step = offset((byte)(move & 3), width);
+			for (int n = move >>> 2; n > 0; n--, i++)
+				path[i] = path[i - 1] + step;
 		}
+		return path;
 	}
 
-	private static class CellPosition {
-		int x, y;
-		public CellPosition(int x, int y) {
-			this.x = x;
-			this.y = y;
+	private int[] findPath(int start, int goal) {
+		if (reducedGraph != null && reducedGraph.isNode(start) && reducedGraph.isNode(goal)) {
+			return reducedGraph.findPath(start, goal);
 		}
-
-		public boolean equals(Object o) {
-			if (o instanceof CellPosition) {
-				CellPosition pos = (CellPosition)o;
-				return pos.x == x && pos.y == y;
-			}
-			return false;
+		if (search == null) {
+			search = newSearch();
 		}
+		return runSearch(search, start, goal);
+	}
+
+	/**
+	 * search.findPath(), counted by MazeMetrics
+	 */
+	private int[] runSearch(SearchStrategy search, int start, int goal) {
+		if (!MazeMetrics.ENABLED)
+			return search.findPath(start, goal);
+		MazeMetrics.SearchEvent event = MazeMetrics.startSearch(strategy, grid);
+		int[] path = search.findPath(start, goal);
+		MazeMetrics.finish(event, search, path);
+		return path;
+	}
 
-		public boolean isInBounds(BufferedImage img) {
-			return x >= img.getMinX() && x < img.getWidth()
-			    && y >= img.getMinY() && y < img.getHeight();
+	private SearchStrategy newSearch() {
+		switch (strategy) {
+			case A_STAR:
+				return new AStarSearch(grid, openSets.get());
+			case BIDIRECTIONAL:
+				return new BidirectionalSearch(grid, openSets.get(), openSets.get());
+			case JUMP_POINT:
+				return new JumpPointSearch(grid, openSets.get());
+			default:
+				throw new IllegalArgumentException("Unknown strategy " + strategy);
 		}
+	}
 
-		public int hashCode() {
-			return (x << 16) ^ y;
+	private void checkOpen(int x, int y) {
+		if (x < 0 || x >= grid.getWidth() || y < 0 || y >= grid.getHeight() || !grid.isOpen(x, y))
+			throw new IllegalArgumentException("(" + x + ", " + y + ") is not an open pixel of the maze.");
+	}
+
+	private int entrance() {
+		return grid.getWidth();
+	}
+
+	private int exit() {
+		return (grid.getHeight() - 2) * grid.getWidth() + grid.getWidth() - 1;
+	}
+
+	/**
+	 * @return The change in pixel number when stepping in direction dir
+	 */
+	static int offset(byte dir, int width) {
+		switch (dir) {
+			case UP:
+				return -width;
+			case DOWN:
+				return width;
+			case LEFT:
+				return -1;
+			default:
+				return 1;
 		}
 	}
 
-	private static class DistanceHeuristic implements Comparator<Cell> {
-		CellPosition exit;
-		public DistanceHeuristic(CellPosition exit) {
-			this.exit = exit;
+	private BufferedImage drawPath(int[] path) {
+		BufferedImage result = createCopy(mazeImage);
+		int[] pixels = ((DataBufferInt)result.getRaster().getDataBuffer()).getData();
+		for (int p : path) {
+			pixels[p] = SOLVE_COLOR;
 		}
+		return result;
+	}
 
-		public int compare(Cell c1, Cell c2) {
-			double costSum1 = c1.costToHere + c1.distanceTo(exit);
-			double costSum2 = c2.costToHere + c2.distanceTo(exit);
-			return (int)(costSum1 - costSum2);
+	/**
+	 * Copies img into a new TYPE_INT_RGB image by writing its pixel array
+	 * directly. Binary images are expanded straight from their packed
+	 * bytes, anything else goes through a single bulk getRGB().
+	 */
+	private BufferedImage createCopy(BufferedImage img) {
+		int width = img.getWidth();
+		int height = img.getHeight();
+		BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt)copy.getRaster().getDataBuffer()).getData();
+		Raster raster = img.getRaster();
+		if (img.getType() == BufferedImage.TYPE_BYTE_BINARY
+		    && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+		    && raster.getSampleModel() instanceof MultiPixelPackedSampleModel
+		    && ((MultiPixelPackedSampleModel)raster.getSampleModel()).getPixelBitStride() == 1) {
+			MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel)raster.getSampleModel();
+			DataBufferByte db = (DataBufferByte)raster.getDataBuffer();
+			byte[] data = db.getData();
+			IndexColorModel cm = (IndexColorModel)img.getColorModel();
+			int[] palette = { cm.getRGB(0), cm.getMapSize() > 1 ? cm.getRGB(1) : cm.getRGB(0) };
+			for (int y = 0; y < height; y++) {
+				long rowStart = (long)db.getOffset() * 8 + (long)y * sm.getScanlineStride() * 8 + sm.getDataBitOffset();
+				for (int x = 0; x < width; x++) {
+					long bit = rowStart + x;
+					pixels[y * width + x] = palette[(data[(int)(bit >>> 3)] >> (7 - (bit & 7))) & 1];
+				}
+			}
+		} else {
+			img.getRGB(0, 0, width, height, pixels, 0, width);
 		}
+		return copy;
 	}
 }
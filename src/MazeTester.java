@@ -1,11 +1,20 @@
-import java.awt.image.*;
-import javax.imageio.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class MazeTester {
 	public static void main(String[] args) {
 		//timeTests();
+		//generationBenchmark();
+		//parallelBenchmark(8000);
+		//streamToPbm(100_000, 100_000, "out.pbm");
+		//batch(10_000, 200, true, "batch");
+		//regeneratedTileTest();
 		interactive();
 	}
 
@@ -16,17 +25,36 @@ public class MazeTester {
 		System.out.print("Maze height: ");
 		int height = kb.nextInt();
 		Maze m = new Maze(width, height);
-		RenderedImage img = m.getMazeImage();
 		try {
-			ImageIO.write(img, "bmp", new File("out.bmp"));
+			m.writeBmp(new File("out.bmp"));
 		} catch (Exception e) {
 			System.out.println("Failed to write image.");
 			e.printStackTrace();
 		}
 		System.out.println("Maze generated.");
+		if (MazeMetrics.ENABLED)
+			System.out.println(MazeMetrics.snapshot());
 		kb.close();
 	}
 
+	/**
+	 * Writes a maze of any height straight to a PBM file with Eller's
+	 * algorithm, holding one row in memory.
+	 */
+	public static void streamToPbm(int width, int height, String file) {
+		Stopwatch s = new Stopwatch();
+		s.start();
+		try {
+			new EllerGenerator(width, height).generate(new PbmRowSink(new FileOutputStream(file)));
+		} catch (IOException e) {
+			System.out.println("Failed to write image.");
+			e.printStackTrace();
+			return;
+		}
+		s.stop();
+		System.out.println(width + "x" + height + " maze streamed in " + s.time() + " seconds.");
+	}
+
 	public static void timeTests() {
 		Stopwatch s = new Stopwatch();
 		int numTrials = 1;
@@ -42,4 +70,140 @@ public class MazeTester {
 			System.out.println(N + "x" + N + ": " + avgTime + "s");
 		}
 	}
+
+	/**
+	 * Times every Algorithm and compares the original pick-until-connected
+	 * loop against the shuffled wall list. Only the union-find algorithms
+	 * go up to 8000x8000; the others stop at 4000x4000, where WILSON alone
+	 * already takes seconds. Run with a large heap (e.g. -Xmx4g) for
+	 * 8000x8000.
+	 */
+	public static void generationBenchmark() {
+		Stopwatch s = new Stopwatch();
+		int[] sizes = { 1000, 4000, 8000 };
+		EnumSet<Maze.Algorithm> unionFind = EnumSet.of(Maze.Algorithm.RANDOM_WALLS, Maze.Algorithm.SHUFFLED_EDGES,
+		    Maze.Algorithm.PARALLEL, Maze.Algorithm.TILED);
+		for (int N : sizes) {
+			System.out.print(N + "x" + N + ":");
+			double[] times = new double[Maze.Algorithm.values().length];
+			for (Maze.Algorithm algorithm : Maze.Algorithm.values()) {
+				if (N > 4000 && !unionFind.contains(algorithm))
+					continue;
+				s.start();
+				new Maze(N, N, algorithm);
+				s.stop();
+				times[algorithm.ordinal()] = s.time();
+				System.out.print(" " + algorithm + " " + s.time() + "s");
+			}
+			double speedup = times[Maze.Algorithm.RANDOM_WALLS.ordinal()] / times[Maze.Algorithm.SHUFFLED_EDGES.ordinal()];
+			System.out.println(" (speedup " + speedup + "x)");
+		}
+	}
+
+	/**
+	 * Writes count N x N mazes, and their solutions if solve is true, to
+	 * directory through a MazeBatch and prints how busy each stage was.
+	 */
+	public static void batch(int count, int N, boolean solve, String directory) {
+		try {
+			MazeBatch.Report report = new MazeBatch(N, N, Maze.Algorithm.SHUFFLED_EDGES, solve, new File(directory)).run(count, 0);
+			System.out.print(report);
+		} catch (IOException | InterruptedException e) {
+			System.out.println("Batch failed.");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Times PARALLEL generation of an N x N maze on pools of 1, 2, 4, ...
+	 * threads up to twice the number of cores and checks every maze is
+	 * still perfect.
+	 */
+	public static void parallelBenchmark(int N) {
+		Stopwatch s = new Stopwatch();
+		s.start();
+		new Maze(N, N, Maze.Algorithm.SHUFFLED_EDGES);
+		s.stop();
+		System.out.println(N + "x" + N + " SHUFFLED_EDGES: " + s.time() + "s");
+		double singleThread = 0;
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			s.start();
+			Maze m = pool.submit(() -> new Maze(N, N, Maze.Algorithm.PARALLEL)).join();
+			s.stop();
+			pool.shutdown();
+			if (threads == 1)
+				singleThread = s.time();
+			System.out.println(N + "x" + N + " PARALLEL, " + threads + " threads: " + s.time()
+			    + "s (speedup " + singleThread / s.time() + "x, perfect: " + isPerfect(m) + ")");
+		}
+	}
+
+	/**
+	 * Renders a tile through a MazeTileCache, regenerates the maze and
+	 * checks the cache then hands out the tile of the new maze, pixel for
+	 * pixel what renderRegion() draws for the same cells.
+	 */
+	public static void regeneratedTileTest() {
+		int tileSize = 16;
+		int scale = 2;
+		Maze m = new Maze(40, 30, Maze.Algorithm.SHUFFLED_EDGES, 1);
+		MazeTileCache cache = new MazeTileCache(m, tileSize, scale, 4);
+		// The last tile also holds the border, so it is exactly a region
+		int tileRow = cache.getTilesDown() - 1;
+		int tileCol = cache.getTilesAcross() - 1;
+		int top = tileRow * tileSize;
+		int left = tileCol * tileSize;
+		BufferedImage before = cache.getTile(tileRow, tileCol);
+		m.regenerate(2);
+		BufferedImage after = cache.getTile(tileRow, tileCol);
+		BufferedImage expected = m.renderRegion(top, left, m.getHeight() - top, m.getWidth() - left, scale);
+		boolean passed = sameImage(after, expected) && !sameImage(before, after);
+		System.out.println((passed ? "Passed" : "Failed") + " regenerated tile test");
+	}
+
+	private static boolean sameImage(BufferedImage a, BufferedImage b) {
+		if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight())
+			return false;
+		int[] pixelsA = a.getRGB(0, 0, a.getWidth(), a.getHeight(), null, 0, a.getWidth());
+		int[] pixelsB = b.getRGB(0, 0, b.getWidth(), b.getHeight(), null, 0, b.getWidth());
+		return Arrays.equals(pixelsA, pixelsB);
+	}
+
+	/**
+	 * A maze is perfect if its open walls form a spanning tree: every cell
+	 * can be reached from cell (0, 0) and there are exactly cells - 1
+	 * passages.
+	 */
+	public static boolean isPerfect(Maze m) {
+		int width = m.getWidth();
+		int height = m.getHeight();
+		boolean[] reached = new boolean[width * height];
+		int[] queue = new int[width * height];
+		int head = 0, tail = 0;
+		long passages = 0;
+		reached[0] = true;
+		queue[tail++] = 0;
+		final int[][] DIR_VECTORS = { { 0, 1 }, { 0, -1 }, { 1, 0 }, { -1, 0 } };
+		while (head < tail) {
+			int cell = queue[head++];
+			int row = cell / width;
+			int col = cell % width;
+			for (int[] dir : DIR_VECTORS) {
+				int neighborRow = row + dir[0];
+				int neighborCol = col + dir[1];
+				if (m.isOpen(row, col, neighborRow, neighborCol)) {
+					passages++;
+					int neighbor = neighborRow * width + neighborCol;
+					if (!reached[neighbor]) {
+						reached[neighbor] = true;
+						queue[tail++] = neighbor;
+					}
+				}
+			}
+		}
+		// Every passage was seen from both of its cells
+		return tail == width * height && passages / 2 == width * height - 1;
+	}
 }
@@ -0,0 +1,159 @@
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cuts the image of a maze into square tiles of tileSize x tileSize
+ * cells, renders them on demand at a fixed scale and keeps the most
+ * recently used ones. Tiles do not overlap: a tile holds the corners and
+ * walls above and left of its cells, and the last tile of a row or
+ * column also holds the border of the maze. Laid side by side, the tiles
+ * make up getMazeImage() scaled up. The tiles are dropped when the maze
+ * is regenerated.
+ * Safe to use from several threads, but not while the maze is being
+ * regenerated.
+ */
+public class MazeTileCache {
+
+	private Maze maze;
+	private int tileSize;
+	private int scale;
+	private int tilesAcross, tilesDown;
+	private Map<Long, BufferedImage> tiles;
+	// The Maze.getModCount() the cached tiles were rendered at
+	private int modCount;
+
+	/**
+	 * @param capacity The number of tiles kept. The least recently used
+	 * tile is dropped to make room for a new one.
+	 */
+	public MazeTileCache(Maze maze, int tileSize, int scale, int capacity) {
+		if (tileSize < 1 || scale < 1 || capacity < 1)
+			throw new IllegalArgumentException("tileSize, scale and capacity must be >= 1");
+		this.maze = maze;
+		this.tileSize = tileSize;
+		this.scale = scale;
+		tilesAcross = (maze.getWidth() + tileSize - 1) / tileSize;
+		tilesDown = (maze.getHeight() + tileSize - 1) / tileSize;
+		modCount = maze.getModCount();
+		tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public int getTilesAcross() {
+		return tilesAcross;
+	}
+
+	public int getTilesDown() {
+		return tilesDown;
+	}
+
+	/**
+	 * Drops every cached tile.
+	 */
+	public void clear() {
+		synchronized (tiles) {
+			tiles.clear();
+		}
+	}
+
+	/**
+	 * @return The tile in row tileRow and column tileCol of the tile grid,
+	 * rendered now if it is not cached
+	 */
+	public BufferedImage getTile(int tileRow, int tileCol) {
+		checkTile(tileRow, tileCol);
+		long key = key(tileRow, tileCol);
+		int renderedAt;
+		synchronized (tiles) {
+			renderedAt = checkModCount();
+			BufferedImage tile = tiles.get(key);
+			if (tile != null)
+				return tile;
+		}
+		BufferedImage tile = render(tileRow, tileCol);
+		synchronized (tiles) {
+			if (checkModCount() == renderedAt)
+				tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	/**
+	 * Gets several tiles at once, rendering the ones which are not cached
+	 * in parallel. A tile requested more than once is rendered once.
+	 * @param requested Each tile is { tileRow, tileCol }
+	 * @return The tiles in the order they were requested
+	 */
+	public BufferedImage[] getTiles(int[][] requested) {
+		BufferedImage[] result = new BufferedImage[requested.length];
+		// The key of each missing tile and the first request for it
+		Map<Long, Integer> missing = new LinkedHashMap<>();
+		int renderedAt;
+		synchronized (tiles) {
+			renderedAt = checkModCount();
+			for (int i = 0; i < requested.length; i++) {
+				checkTile(requested[i][0], requested[i][1]);
+				long key = key(requested[i][0], requested[i][1]);
+				result[i] = tiles.get(key);
+				if (result[i] == null)
+					missing.putIfAbsent(key, i);
+			}
+		}
+		int[] first = new int[missing.size()];
+		int count = 0;
+		for (int i : missing.values())
+			first[count++] = i;
+		ParallelTasks.parallelFor(first.length, task -> {
+			int i = first[task];
+			result[i] = render(requested[i][0], requested[i][1]);
+		});
+		for (int i = 0; i < requested.length; i++) {
+			if (result[i] == null)
+				result[i] = result[missing.get(key(requested[i][0], requested[i][1]))];
+		}
+		synchronized (tiles) {
+			if (checkModCount() != renderedAt)
+				return result;
+			for (int i : first)
+				tiles.put(key(requested[i][0], requested[i][1]), result[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Drops the tiles if the maze has been regenerated since they were
+	 * rendered. Called holding the lock on tiles.
+	 * @return The modification count of the maze
+	 */
+	private int checkModCount() {
+		int current = maze.getModCount();
+		if (current != modCount) {
+			tiles.clear();
+			modCount = current;
+		}
+		return current;
+	}
+
+	private BufferedImage render(int tileRow, int tileCol) {
+		int imageWidth = 2 * maze.getWidth() + 1;
+		int imageHeight = 2 * maze.getHeight() + 1;
+		int x = 2 * tileSize * tileCol;
+		int y = 2 * tileSize * tileRow;
+		int pixelWidth = tileCol == tilesAcross - 1 ? imageWidth - x : 2 * tileSize;
+		int pixelHeight = tileRow == tilesDown - 1 ? imageHeight - y : 2 * tileSize;
+		return maze.renderPixels(x, y, pixelWidth, pixelHeight, scale);
+	}
+
+	private void checkTile(int tileRow, int tileCol) {
+		if (tileRow < 0 || tileRow >= tilesDown || tileCol < 0 || tileCol >= tilesAcross)
+			throw new IllegalArgumentException("There is no tile (" + tileRow + ", " + tileCol + ").");
+	}
+
+	private static long key(int tileRow, int tileCol) {
+		return (long)tileRow << 32 | tileCol;
+	}
+}
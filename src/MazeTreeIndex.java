@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * Answers path queries on a perfect maze without searching. A perfect
+ * maze is a spanning tree of its cells, so the path between two cells is
+ * unique: it climbs from both cells to their lowest common ancestor.
+ * The index stores, per cell, its parent and depth in a BFS tree rooted
+ * at the entrance, and one jump pointer to an ancestor. The jump pointers
+ * follow the skew-binary scheme, which finds any ancestor or common
+ * ancestor in O(log n) steps with O(1) extra space per cell.
+ */
+public class MazeTreeIndex {
+
+	private int[] parent;
+	private int[] depth;
+	private int[] jump;
+
+	/**
+	 * @param maze a perfect maze, as generated by Maze. Cells which cannot
+	 * be reached from the entrance are left out of the index.
+	 */
+	public MazeTreeIndex(Maze maze) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		int numCells = width * height;
+		parent = new int[numCells];
+		depth = new int[numCells];
+		jump = new int[numCells];
+		Arrays.fill(depth, -1);
+
+		// BFS order visits every parent before its children, which is all
+		// the jump pointers need
+		int[] queue = new int[numCells];
+		int head = 0, tail = 0;
+		parent[0] = 0;
+		jump[0] = 0;
+		depth[0] = 0;
+		queue[tail++] = 0;
+		while (head < tail) {
+			int cell = queue[head++];
+			int row = cell / width;
+			int col = cell % width;
+			if (row > 0 && !maze.hasWall(cell, Maze.NORTH))
+				tail = addChild(cell - width, cell, queue, tail);
+			if (col > 0 && !maze.hasWall(cell, Maze.WEST))
+				tail = addChild(cell - 1, cell, queue, tail);
+			if (row < height - 1 && !maze.hasWall(cell + width, Maze.NORTH))
+				tail = addChild(cell + width, cell, queue, tail);
+			if (col < width - 1 && !maze.hasWall(cell + 1, Maze.WEST))
+				tail = addChild(cell + 1, cell, queue, tail);
+		}
+	}
+
+	/**
+	 * @return The number of steps between two cells, or -1 if they are
+	 * not connected. Takes O(log n) time.
+	 */
+	public int distance(int from, int to) {
+		int ancestor = commonAncestor(from, to);
+		if (ancestor < 0)
+			return -1;
+		return depth[from] + depth[to] - 2 * depth[ancestor];
+	}
+
+	/**
+	 * @return The cells on the path from "from" to "to" inclusive, or null
+	 * if they are not connected. Takes O(path length) time.
+	 */
+	public int[] path(int from, int to) {
+		int ancestor = commonAncestor(from, to);
+		if (ancestor < 0)
+			return null;
+		int[] path = new int[depth[from] + depth[to] - 2 * depth[ancestor] + 1];
+		int i = 0;
+		for (int cell = from; cell != ancestor; cell = parent[cell])
+			path[i++] = cell;
+		path[i] = ancestor;
+		i = path.length - 1;
+		for (int cell = to; cell != ancestor; cell = parent[cell])
+			path[i--] = cell;
+		return path;
+	}
+
+	/**
+	 * @return The lowest common ancestor of two cells in the tree rooted
+	 * at the entrance, or -1 if either cell is not in the tree
+	 */
+	public int commonAncestor(int a, int b) {
+		if (a < 0 || a >= depth.length || b < 0 || b >= depth.length)
+			throw new IllegalArgumentException("Both cells must be in the maze.");
+		if (depth[a] < 0 || depth[b] < 0)
+			return -1;
+		if (depth[a] < depth[b]) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+		a = ancestorAt(a, depth[b]);
+		while (a != b) {
+			// Cells at the same depth have jump pointers of the same length
+			if (jump[a] != jump[b]) {
+				a = jump[a];
+				b = jump[b];
+			} else {
+				a = parent[a];
+				b = parent[b];
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * @return The number of steps from the entrance to cell, or -1 if it
+	 * cannot be reached
+	 */
+	public int depth(int cell) {
+		return depth[cell];
+	}
+
+	/**
+	 * @return The ancestor of cell at depth d <= depth(cell)
+	 */
+	private int ancestorAt(int cell, int d) {
+		while (depth[cell] > d) {
+			if (depth[jump[cell]] >= d)
+				cell = jump[cell];
+			else
+				cell = parent[cell];
+		}
+		return cell;
+	}
+
+	private int addChild(int child, int cell, int[] queue, int tail) {
+		if (depth[child] >= 0)
+			return tail; // Only reachable again through a cycle, or the parent
+		parent[child] = cell;
+		depth[child] = depth[cell] + 1;
+		int up = jump[cell];
+		if (depth[cell] - depth[up] == depth[up] - depth[jump[up]])
+			jump[child] = jump[up];
+		else
+			jump[child] = cell;
+		queue[tail++] = child;
+		return tail;
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * The open set of a best-first search: int nodes keyed by int costs.
+ * Implementations may require monotone keys, that is nothing is pushed
+ * with a key smaller than the last key popped. A* with a consistent
+ * heuristic and Dijkstra's algorithm both satisfy this.
+ * There is no decrease-key: a node is simply pushed again with its
+ * better key, and callers skip the stale copies when they are popped.
+ */
+public interface OpenSet {
+
+	public void push(int node, int key);
+
+	/**
+	 * Removes a node with the smallest key.
+	 * @return The removed node
+	 */
+	public int pop();
+
+	/**
+	 * @return The smallest key in the set, which must not be empty
+	 */
+	public int peekKey();
+
+	public boolean isEmpty();
+
+	public int size();
+
+	/**
+	 * Removes every node, keeping any storage for reuse.
+	 */
+	public void clear();
+}
@@ -0,0 +1,94 @@
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Randomized Kruskal's algorithm spread over the ForkJoinPool generate()
+ * is called from, or the common pool. See Maze.Algorithm.PARALLEL.
+ *
+ * Every task scatters the walls of its block of cells into random
+ * buckets, one bucket per task, and then shuffles and processes one
+ * bucket. Read one after another, the shuffled buckets would be a
+ * uniformly shuffled wall list; here they are processed concurrently
+ * on a ConcurrentDisjointSets instead.
+ */
+public class ParallelKruskalGenerator implements MazeGenerator {
+
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		long numWalls = (long)(height - 1) * width + (long)height * (width - 1);
+		if (numWalls > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Maze is too large for PARALLEL");
+		int numCells = width * height;
+		int numTasks = 4 * ParallelTasks.parallelism();
+		long[] seeds = new long[2 * numTasks];
+		for (int i = 0; i < seeds.length; i++)
+			seeds[i] = random.nextLong();
+
+		// Count how many walls each block sends to each bucket, then replay
+		// the same random choices to place them
+		int[][] bucketOffsets = new int[numTasks][numTasks];
+		ParallelTasks.parallelFor(numTasks, block -> scatterWalls(width, height, block, numTasks, seeds[block], bucketOffsets[block], null));
+		int[] bucketStart = new int[numTasks + 1];
+		int offset = 0;
+		for (int bucket = 0; bucket < numTasks; bucket++) {
+			bucketStart[bucket] = offset;
+			for (int block = 0; block < numTasks; block++) {
+				int count = bucketOffsets[block][bucket];
+				bucketOffsets[block][bucket] = offset;
+				offset += count;
+			}
+		}
+		bucketStart[numTasks] = offset;
+		int[] walls = maze.scratch().ints((int)numWalls);
+		ParallelTasks.parallelFor(numTasks, block -> scatterWalls(width, height, block, numTasks, seeds[block], bucketOffsets[block], walls));
+
+		IntDisjointSets cellSets = new ConcurrentDisjointSets(numCells);
+		ParallelTasks.parallelFor(numTasks, bucket -> {
+			SplittableRandom bucketRandom = new SplittableRandom(seeds[numTasks + bucket]);
+			int start = bucketStart[bucket];
+			for (int i = bucketStart[bucket + 1] - 1; i > start; i--) {
+				int j = start + bucketRandom.nextInt(i - start + 1);
+				int temp = walls[i];
+				walls[i] = walls[j];
+				walls[j] = temp;
+			}
+			for (int i = start; i < bucketStart[bucket + 1]; i++) {
+				int cell = walls[i] / Maze.DIR_COUNT;
+				int wallDir = walls[i] % Maze.DIR_COUNT;
+				int neighbor = wallDir == Maze.NORTH ? cell - width : cell - 1;
+				if (cellSets.tryUnion(cell, neighbor))
+					maze.openWallAtomic(cell, wallDir);
+			}
+		});
+		// Every wall is picked, there is no early exit
+		maze.countGeneration(numWalls, cellSets);
+	}
+
+	/**
+	 * Sends each wall of a block of cells to a random bucket.
+	 * @param next per bucket, the number of walls sent there when walls
+	 * is null, otherwise the index in walls to write the next one to
+	 */
+	private static void scatterWalls(int width, int height, int block, int numBlocks, long seed, int[] next, int[] walls) {
+		SplittableRandom blockRandom = new SplittableRandom(seed);
+		int numCells = width * height;
+		int end = (int)((long)numCells * (block + 1) / numBlocks);
+		int cell = (int)((long)numCells * block / numBlocks);
+		int col = cell % width;
+		for (; cell < end; cell++, col = col + 1 == width ? 0 : col + 1) {
+			if (cell >= width) {
+				int bucket = blockRandom.nextInt(numBlocks);
+				if (walls != null)
+					walls[next[bucket]] = cell * Maze.DIR_COUNT + Maze.NORTH;
+				next[bucket]++;
+			}
+			if (col > 0) {
+				int bucket = blockRandom.nextInt(numBlocks);
+				if (walls != null)
+					walls[next[bucket]] = cell * Maze.DIR_COUNT + Maze.WEST;
+				next[bucket]++;
+			}
+		}
+	}
+}
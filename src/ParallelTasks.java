@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Helpers for splitting work into ForkJoin tasks. Work runs in the pool
+ * of the calling thread if it is a ForkJoin worker, so callers can pick
+ * the number of threads by submitting to their own pool, and in the
+ * common pool otherwise.
+ */
+class ParallelTasks {
+
+	private ParallelTasks() {
+	}
+
+	/**
+	 * @return The number of threads work will be spread over
+	 */
+	static int parallelism() {
+		if (ForkJoinTask.inForkJoinPool())
+			return ForkJoinTask.getPool().getParallelism();
+		return ForkJoinPool.getCommonPoolParallelism();
+	}
+
+	/**
+	 * Runs body(0) .. body(count - 1) as ForkJoin tasks and waits for all
+	 * of them.
+	 */
+	static void parallelFor(int count, IntConsumer body) {
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int index = i;
+			tasks.add(ForkJoinTask.adapt(() -> body.accept(index)));
+		}
+		if (ForkJoinTask.inForkJoinPool())
+			ForkJoinTask.invokeAll(tasks);
+		else
+			ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * A rectangle of pixels which are either open (empty) or blocked (wall),
+ * as seen by MazeSolver.
+ */
+public interface PassabilityGrid {
+
+	public int getWidth();
+
+	public int getHeight();
+
+	/**
+	 * @param x 0 <= x < getWidth()
+	 * @param y 0 <= y < getHeight()
+	 * @return true if the pixel at (x, y) can be walked on
+	 */
+	public boolean isOpen(int x, int y);
+}
@@ -0,0 +1,54 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a maze as a binary PBM (P4) image, the same picture
+ * getMazeImage() draws, as its rows arrive. Only two scanlines and one
+ * output buffer are held in memory at a time.
+ */
+public class PbmRowSink implements MazeRowSink {
+
+	private WritableByteChannel channel;
+	private LineWriter out;
+	private ScanlineEncoder encoder;
+	private byte[] upper, lower;
+	private int row;
+
+	/**
+	 * @param out The stream to write to, closed by finish()
+	 */
+	public PbmRowSink(OutputStream out) {
+		this(Channels.newChannel(out));
+	}
+
+	/**
+	 * @param channel The channel to write to, closed by finish()
+	 */
+	public PbmRowSink(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public void start(int width, int height) throws IOException {
+		encoder = new ScanlineEncoder(width, height, false);
+		upper = new byte[encoder.getBytesPerLine()];
+		lower = new byte[encoder.getBytesPerLine()];
+		out = new LineWriter(channel, encoder.getBytesPerLine());
+		String header = "P4\n" + encoder.getImageWidth() + " " + encoder.getImageHeight() + "\n";
+		out.write(header.getBytes(StandardCharsets.US_ASCII));
+		row = 0;
+	}
+
+	public void writeRow(long[] openWalls) throws IOException {
+		encoder.encodeRow(openWalls, row++, upper, lower);
+		out.write(upper);
+		out.write(lower);
+	}
+
+	public void finish() throws IOException {
+		encoder.encodeBottom(upper);
+		out.write(upper);
+		out.close();
+	}
+}
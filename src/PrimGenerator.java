@@ -0,0 +1,77 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Randomized Prim's algorithm: the maze grows from one cell by
+ * connecting a random cell of its frontier (the cells next to it) to a
+ * random neighbour already in the maze. Makes many short dead ends
+ * branching off in every direction. The frontier is a plain int array;
+ * a picked cell is swapped with the last one and the array shrinks, so
+ * a pick is O(1) and nothing is allocated while generating.
+ * See Maze.Algorithm.PRIM.
+ */
+public class PrimGenerator implements MazeGenerator {
+
+	private static final byte OUTSIDE = 0, FRONTIER = 1, INSIDE = 2;
+
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int numCells = width * maze.getHeight();
+		GeneratorScratch scratch = maze.scratch();
+		byte[] state = scratch.clearedBytes(numCells);
+		// At most every cell but the first is in the frontier at once
+		int[] frontier = scratch.ints(numCells);
+		int[] inside = scratch.neighbors();
+
+		int start = random.nextInt(numCells);
+		state[start] = INSIDE;
+		int size = addFrontier(start, width, numCells, state, frontier, 0);
+		while (size > 0) {
+			int i = random.nextInt(size);
+			int cell = frontier[i];
+			frontier[i] = frontier[--size];
+
+			int row = cell / width;
+			int col = cell - row * width;
+			int count = 0;
+			if (row > 0 && state[cell - width] == INSIDE)
+				inside[count++] = cell - width;
+			if (col > 0 && state[cell - 1] == INSIDE)
+				inside[count++] = cell - 1;
+			if (col + 1 < width && state[cell + 1] == INSIDE)
+				inside[count++] = cell + 1;
+			if (cell + width < numCells && state[cell + width] == INSIDE)
+				inside[count++] = cell + width;
+			maze.openPassage(cell, inside[count == 1 ? 0 : random.nextInt(count)]);
+			state[cell] = INSIDE;
+			size = addFrontier(cell, width, numCells, state, frontier, size);
+		}
+		// Every frontier cell picked is joined, nothing is rejected
+		maze.countGeneration(numCells - 1, numCells - 1);
+	}
+
+	/**
+	 * Adds the neighbours of cell which are not in the maze or the
+	 * frontier yet to the frontier.
+	 * @return The new size of the frontier
+	 */
+	private static int addFrontier(int cell, int width, int numCells, byte[] state, int[] frontier, int size) {
+		int col = cell % width;
+		if (cell >= width && state[cell - width] == OUTSIDE) {
+			state[cell - width] = FRONTIER;
+			frontier[size++] = cell - width;
+		}
+		if (col > 0 && state[cell - 1] == OUTSIDE) {
+			state[cell - 1] = FRONTIER;
+			frontier[size++] = cell - 1;
+		}
+		if (col + 1 < width && state[cell + 1] == OUTSIDE) {
+			state[cell + 1] = FRONTIER;
+			frontier[size++] = cell + 1;
+		}
+		if (cell + width < numCells && state[cell + width] == OUTSIDE) {
+			state[cell + width] = FRONTIER;
+			frontier[size++] = cell + width;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+/**
+ * A radix heap for monotone keys. Bucket i holds the nodes whose key
+ * first differs from the last key popped in bit i - 1, so a node only
+ * moves to lower buckets and is touched at most 33 times in total,
+ * however far apart the keys are. Nodes with equal keys come out last
+ * in, first out.
+ */
+public class RadixHeap implements OpenSet {
+
+	private static final int NUM_BUCKETS = 33;
+
+	private int[][] nodes;
+	// Keys are stored with the sign bit flipped so unsigned order is int order
+	private int[][] keys;
+	private int[] counts;
+	private int last;
+	private int size;
+
+	public RadixHeap() {
+		nodes = new int[NUM_BUCKETS][];
+		keys = new int[NUM_BUCKETS][];
+		counts = new int[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			nodes[i] = new int[16];
+			keys[i] = new int[16];
+		}
+		clear();
+	}
+
+	public void push(int node, int key) {
+		int unsignedKey = key ^ Integer.MIN_VALUE;
+		if (Integer.compareUnsigned(unsignedKey, last) < 0)
+			throw new IllegalArgumentException("Keys must not be smaller than the last key popped.");
+		add(bucketOf(unsignedKey), node, unsignedKey);
+		size++;
+	}
+
+	public int pop() {
+		fillFirstBucket();
+		size--;
+		return nodes[0][--counts[0]];
+	}
+
+	public int peekKey() {
+		fillFirstBucket();
+		return last ^ Integer.MIN_VALUE;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(counts, 0);
+		size = 0;
+		last = 0;
+	}
+
+	private int bucketOf(int unsignedKey) {
+		return 32 - Integer.numberOfLeadingZeros(unsignedKey ^ last);
+	}
+
+	private void add(int bucket, int node, int unsignedKey) {
+		int count = counts[bucket];
+		if (count == nodes[bucket].length) {
+			nodes[bucket] = Arrays.copyOf(nodes[bucket], count * 2);
+			keys[bucket] = Arrays.copyOf(keys[bucket], count * 2);
+		}
+		nodes[bucket][count] = node;
+		keys[bucket][count] = unsignedKey;
+		counts[bucket] = count + 1;
+	}
+
+	/**
+	 * Makes the smallest key the new last key, which moves every node in
+	 * the first non-empty bucket to a lower one and at least the nodes
+	 * with that key to bucket 0.
+	 */
+	private void fillFirstBucket() {
+		if (size == 0)
+			throw new IllegalStateException("Heap is empty.");
+		if (counts[0] > 0)
+			return;
+		int bucket = 1;
+		while (counts[bucket] == 0)
+			bucket++;
+		int[] bucketNodes = nodes[bucket];
+		int[] bucketKeys = keys[bucket];
+		int count = counts[bucket];
+		int min = bucketKeys[0];
+		for (int i = 1; i < count; i++) {
+			if (Integer.compareUnsigned(bucketKeys[i], min) < 0)
+				min = bucketKeys[i];
+		}
+		last = min;
+		counts[bucket] = 0;
+		for (int i = 0; i < count; i++) {
+			add(bucketOf(bucketKeys[i]), bucketNodes[i], bucketKeys[i]);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Randomized Kruskal's algorithm as it was first written: keep picking a
+ * random wall until every cell is connected. Picks are increasingly
+ * rejected as the maze fills up. See Maze.Algorithm.RANDOM_WALLS.
+ */
+public class RandomWallsGenerator implements MazeGenerator {
+
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		IntDisjointSets cellSets = maze.scratch().disjointSets(width * height, random);
+		// Picks of walls on the border of the maze are not counted
+		long picks = 0;
+		// Substitute these line for easier mazes
+		//int start = 0;
+		//int end = width * height - 1;
+		//while (!cellSets.sameSet(start, end)) {
+		while (cellSets.getNumberOfSets() > 1) {
+			int row = random.nextInt(height);
+			int col = random.nextInt(width);
+			int wallDir = random.nextInt(Maze.DIR_COUNT);
+			if (wallDir == Maze.NORTH ? row > 0 : col > 0) {
+				picks++;
+				int cell = row * width + col;
+				// The two cells are now a part of the same set of reachable cells
+				if (cellSets.tryUnion(cell, wallDir == Maze.NORTH ? cell - width : cell - 1)) {
+					// Knock down the walls
+					maze.openWall(cell, wallDir);
+				}
+			}
+		}
+		maze.countGeneration(picks, cellSets);
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Turns rows of cell walls into the 1 bit per pixel scanlines of the
+ * maze image getMazeImage() draws: 2 * width + 1 pixels across, 8
+ * pixels per byte with the leftmost pixel in the high bit, the way BMP
+ * and PBM store them. Every row of cells becomes two scanlines, one
+ * through the corners and NORTH walls and one through the WEST walls and
+ * the cells, and a last scanline closes the bottom border. Four cells
+ * fill exactly one byte, so each byte is a table lookup on 8 wall bits.
+ */
+public class ScanlineEncoder {
+
+	// Indexed by the 8 wall bits of 4 cells, with open pixels as 1 bits
+	private static final byte[] UPPER = new byte[256];
+	private static final byte[] LOWER = new byte[256];
+
+	static {
+		for (int walls = 0; walls < 256; walls++) {
+			int upper = 0, lower = 0;
+			for (int j = 0; j < 4; j++) {
+				upper |= ((walls >>> (2 * j + Maze.NORTH)) & 1) << (6 - 2 * j);
+				lower |= ((walls >>> (2 * j + Maze.WEST)) & 1) << (7 - 2 * j);
+				lower |= 1 << (6 - 2 * j);
+			}
+			UPPER[walls] = (byte)upper;
+			LOWER[walls] = (byte)lower;
+		}
+	}
+
+	private int width, height;
+	private boolean openIsOne;
+	private int lastByte;
+	// The bits of lastByte which are pixels and not padding
+	private int lastByteMask;
+	// The bit of lastByte holding the right border
+	private int borderBit;
+
+	/**
+	 * @param openIsOne true if open pixels are 1 bits, as in a BMP with a
+	 * black and white palette, false if walls are, as in PBM
+	 */
+	public ScanlineEncoder(int width, int height, boolean openIsOne) {
+		this.width = width;
+		this.height = height;
+		this.openIsOne = openIsOne;
+		lastByte = 2 * width / 8;
+		borderBit = 0x80 >>> (2 * width % 8);
+		lastByteMask = (0xFF00 >>> (2 * width % 8 + 1)) & 0xFF;
+	}
+
+	public int getImageWidth() {
+		return 2 * width + 1;
+	}
+
+	public int getImageHeight() {
+		return 2 * height + 1;
+	}
+
+	/**
+	 * @return The number of bytes in a scanline, without any padding
+	 */
+	public int getBytesPerLine() {
+		return lastByte + 1;
+	}
+
+	/**
+	 * Encodes the two scanlines of a row of cells.
+	 * @param openWalls The row, as passed to MazeRowSink.writeRow()
+	 * @param upper receives scanline 2 * row
+	 * @param lower receives scanline 2 * row + 1
+	 */
+	public void encodeRow(long[] openWalls, int row, byte[] upper, byte[] lower) {
+		int numCellBytes = (width + 3) / 4;
+		for (int k = 0; k < numCellBytes; k++) {
+			int walls = (int)(openWalls[k >>> 3] >>> ((k & 7) * 8)) & 0xFF;
+			upper[k] = UPPER[walls];
+			lower[k] = LOWER[walls];
+		}
+		if (lastByte == numCellBytes) {
+			upper[lastByte] = 0;
+			lower[lastByte] = 0;
+		} else {
+			// Drop the cells the table filled in past the last one
+			upper[lastByte] &= lastByteMask & ~borderBit;
+			lower[lastByte] &= lastByteMask & ~borderBit;
+		}
+		if (row == 0)
+			lower[0] |= 0x80; // Entrance
+		if (row == height - 1)
+			lower[lastByte] |= borderBit; // Exit
+		if (!openIsOne) {
+			invert(upper);
+			invert(lower);
+		}
+	}
+
+	/**
+	 * Encodes the scanline of the bottom border.
+	 */
+	public void encodeBottom(byte[] line) {
+		for (int k = 0; k <= lastByte; k++)
+			line[k] = 0;
+		if (!openIsOne)
+			invert(line);
+	}
+
+	private void invert(byte[] line) {
+		for (int k = 0; k < lastByte; k++)
+			line[k] = (byte)~line[k];
+		line[lastByte] = (byte)(~line[lastByte] & lastByteMask);
+	}
+}
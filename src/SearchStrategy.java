@@ -0,0 +1,33 @@
+/**
+ * A way of finding shortest paths between open pixels of a
+ * PassabilityGrid. Pixels are numbered y * width + x. An instance keeps
+ * its search arrays from query to query, so it must only be used by one
+ * thread at a time.
+ */
+public interface SearchStrategy {
+
+	/**
+	 * @return The pixels on a shortest path from start to goal inclusive,
+	 * or null if goal cannot be reached
+	 */
+	public int[] findPath(int start, int goal);
+
+	/**
+	 * @return The number of pixels the last findPath() expanded, which is
+	 * the best measure of how much work it did
+	 */
+	public int getExpandedNodes();
+
+	/**
+	 * @return The most nodes the open set held at once during the last
+	 * findPath(). Only counted while MazeMetrics.ENABLED, otherwise 0.
+	 */
+	public int getMaxOpenSetSize();
+
+	/**
+	 * @return The number of times the last findPath() pushed a pixel
+	 * again because it found a cheaper way to it. Only counted while
+	 * MazeMetrics.ENABLED, otherwise 0.
+	 */
+	public int getReopenedNodes();
+}
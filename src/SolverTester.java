@@ -6,6 +6,16 @@ import java.util.*;
 public class SolverTester {
 
 	public static void main(String[] args) throws IOException {
+		if (args.length == 3 && args[0].equals("-mapped")) {
+			solveMapped(args[1], args[2]);
+			return;
+		}
+		if (args.length > 0) {
+			for (String file : args)
+				compareStrategies(file);
+			return;
+		}
+
 		// Get Maze parameters
 		Scanner kb = new Scanner(System.in);
 		System.out.print("Maze width: ");
@@ -21,9 +31,26 @@ public class SolverTester {
 		s.stop();
 		System.out.println("Maze generated in " + s.time() + " seconds.");
 		BufferedImage mazeImage = m.getMazeImage();
-		saveImage(mazeImage, "maze.bmp");
+		m.writeBmp(new File("maze.bmp"));
+
+		// Solve the Maze on its walls
+		GridSolver gridSolver = new GridSolver(m);
+		s.start();
+		int[] path = gridSolver.solve();
+		s.stop();
+		System.out.println("Maze solved on the grid in " + s.time() + " seconds, " + path.length + " cells long.");
 
-		// Solve the Maze
+		// Look the path up in the spanning tree
+		s.start();
+		MazeTreeIndex index = m.getTreeIndex();
+		s.stop();
+		System.out.println("Tree index built in " + s.time() + " seconds.");
+		s.start();
+		path = index.path(0, width * height - 1);
+		s.stop();
+		System.out.println("Maze solved on the tree in " + s.time() + " seconds, " + path.length + " cells long.");
+
+		// Solve the Maze image
 		MazeSolver solver = new MazeSolver(mazeImage);
 		s.start();
 		BufferedImage solved = solver.solve();
@@ -34,6 +61,47 @@ public class SolverTester {
 			return;
 		}
 		saveImage(solved, "maze_solved.bmp");
+		if (MazeMetrics.ENABLED)
+			System.out.println(MazeMetrics.snapshot());
+	}
+
+	/**
+	 * Solves a maze image with every strategy and prints how many pixels
+	 * each one expanded.
+	 */
+	public static void compareStrategies(String file) throws IOException {
+		BufferedImage mazeImage = ImageIO.read(new File(file));
+		System.out.println(file + ":");
+		Stopwatch s = new Stopwatch();
+		for (MazeSolver.Strategy strategy : MazeSolver.Strategy.values()) {
+			MazeSolver solver = new MazeSolver(mazeImage, strategy);
+			s.start();
+			BufferedImage solved = solver.solve();
+			s.stop();
+			System.out.println("\t" + strategy + ": " + solver.getExpandedNodes() + " pixels expanded in " + s.time() + " seconds"
+			    + (solved == null ? ", no solution" : ""));
+		}
+	}
+
+	/**
+	 * Solves a BMP file in place through a MappedBmpGrid and writes the
+	 * solved maze to output, without decoding either image.
+	 */
+	public static void solveMapped(String input, String output) throws IOException {
+		Stopwatch s = new Stopwatch();
+		s.start();
+		MappedBmpGrid grid = MappedBmpGrid.open(new File(input));
+		int[] path = new MazeSolver(grid, MazeSolver.Strategy.A_STAR).solvePath();
+		s.stop();
+		System.out.println("Mapped maze solved in " + s.time() + " seconds.");
+		if (path == null) {
+			System.out.println("Failed to find a solution");
+			return;
+		}
+		s.start();
+		grid.writeSolution(path, new File(output));
+		s.stop();
+		System.out.println("Solution written in " + s.time() + " seconds.");
 	}
 
 	public static void saveImage(BufferedImage img, String name) throws IOException {
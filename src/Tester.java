@@ -1,3 +1,5 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Tester {
 	public static void main(String[] args) {
 		System.out.println("Trivial Disjoint Sets");
@@ -26,6 +28,85 @@ public class Tester {
 		slowEvenOddTests(new FasterDisjointSets<>(), 50000);
 		s.stop();
 		System.out.println("Slow Even/odd test: " + s.time() + " seconds");
+
+		System.out.println("\nFaster Disjoint Sets of ints and longs");
+		basicTests(new FasterDisjointSets.OfInt());
+		longTests(new FasterDisjointSets.OfLong());
+
+		s.start();
+		evenOddTests(new FasterDisjointSets.OfInt(), 50000);
+		s.stop();
+		System.out.println("Even/odd test: " + s.time() + " seconds");
+
+		s.start();
+		slowEvenOddTests(new FasterDisjointSets.OfInt(), 50000);
+		s.stop();
+		System.out.println("Slow Even/odd test: " + s.time() + " seconds");
+
+		System.out.println("\nArray Disjoint Sets");
+		ArrayDisjointSets reused = new ArrayDisjointSets(6);
+		basicTests(reused);
+		reused.reset();
+		basicTests(reused);
+
+		s.start();
+		evenOddTests(new ArrayDisjointSets(50000));
+		s.stop();
+		System.out.println("Even/odd test: " + s.time() + " seconds");
+
+		s.start();
+		slowEvenOddTests(new ArrayDisjointSets(50000));
+		s.stop();
+		System.out.println("Slow Even/odd test: " + s.time() + " seconds");
+
+		System.out.println("\nConcurrent Disjoint Sets");
+		basicTests(new ConcurrentDisjointSets(6));
+
+		s.start();
+		evenOddTests(new ConcurrentDisjointSets(50000));
+		s.stop();
+		System.out.println("Even/odd test: " + s.time() + " seconds");
+
+		s.start();
+		slowEvenOddTests(new ConcurrentDisjointSets(50000));
+		s.stop();
+		System.out.println("Slow Even/odd test: " + s.time() + " seconds");
+
+		s.start();
+		concurrentTests(new ConcurrentDisjointSets(1 << 20), 4);
+		s.stop();
+		System.out.println("Concurrent test: " + s.time() + " seconds");
+	}
+
+	/**
+	 * Several threads race to join every element with its neighbours.
+	 * Exactly size - 1 of the joins can succeed. The stride 7 must not
+	 * share a factor with size - 1.
+	 */
+	public static void concurrentTests(IntDisjointSets ds, int numThreads) {
+		AtomicInteger joined = new AtomicInteger();
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			int offset = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 1; i < ds.size(); i++) {
+					int d = (i * 7 + offset * 31) % (ds.size() - 1) + 1;
+					if (ds.tryUnion(d, d - 1))
+						joined.incrementAndGet();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		test(ds.size() - 1, joined.get());
+		test(1, ds.getNumberOfSets());
+		test(true, ds.sameSet(0, ds.size() - 1));
 	}
 
 	public static void basicTests(DisjointSets<Integer> ds) {
@@ -38,6 +119,23 @@ public class Tester {
 		test(true, ds.find(3) == ds.find(5));
 	}
 
+	/**
+	 * Keys which only differ above the low 32 bits, through both the
+	 * long and the Long methods.
+	 */
+	public static void longTests(FasterDisjointSets.OfLong ds) {
+		long big = 1L << 40;
+		ds.makeSet(big);
+		ds.makeSet(big + 1);
+		ds.makeSet(Long.valueOf(1));
+		test(false, ds.sameSet(big, big + 1));
+		test(-1, ds.find(2 * big));
+		ds.union(big, 1);
+		test(true, ds.sameSet(Long.valueOf(1), Long.valueOf(big)));
+		test(false, ds.sameSet(1, big + 1));
+		test(2, ds.getNumberOfSets());
+	}
+
 	public static void evenOddTests(DisjointSets<Integer> evenOdd, int LIMIT) {
 		for (int i = 0; i < LIMIT; i++) {
 			evenOdd.makeSet(i);
@@ -81,6 +179,63 @@ public class Tester {
 		System.out.println("Average depth: " + evenOdd.getAverageDepth());
 	}
 
+	public static void basicTests(IntDisjointSets ds) {
+		test(false, ds.find(3) == ds.find(5));
+		test(-1, ds.find(6));
+		test(false, ds.find(3) == -1);
+		ds.union(3, 5);
+		test(true, ds.find(3) == ds.find(5));
+		test(false, ds.tryUnion(5, 3));
+		test(5, ds.getNumberOfSets());
+		boolean rejected = false;
+		try {
+			ds.sameSet(6, 7);
+		} catch (IllegalArgumentException e) {
+			rejected = true;
+		}
+		test(true, rejected);
+		rejected = false;
+		try {
+			ds.tryUnion(-1, 0);
+		} catch (IllegalArgumentException e) {
+			rejected = true;
+		}
+		test(true, rejected);
+	}
+
+	public static void evenOddTests(IntDisjointSets evenOdd) {
+		int LIMIT = evenOdd.size();
+		for (int i = 2; i + 1 < LIMIT; i += 2) {
+			evenOdd.union(i, 0);
+			evenOdd.union(i + 1, 1);
+		}
+		checkEvenOdd(evenOdd);
+	}
+
+	public static void slowEvenOddTests(IntDisjointSets evenOdd) {
+		int LIMIT = evenOdd.size();
+		for (int i = LIMIT - 1; i >= 2; i--) {
+			evenOdd.union(i, i - 2);
+		}
+		checkEvenOdd(evenOdd);
+	}
+
+	private static void checkEvenOdd(IntDisjointSets evenOdd) {
+		int LIMIT = evenOdd.size();
+		for (int i = 2; i < LIMIT; i += 2) {
+			if (evenOdd.find(i) != evenOdd.find(i - 2)) {
+				System.out.println(i + " was not in the even set");
+			}
+		}
+		for (int i = 3; i < LIMIT; i += 2) {
+			if (evenOdd.find(i) != evenOdd.find(i - 2)) {
+				System.out.println(i + " was not in the odd set");
+			}
+		}
+		test(2, evenOdd.getNumberOfSets());
+		System.out.println("Average depth: " + evenOdd.getAverageDepth());
+	}
+
 	public static void test(Object expected, Object actual) {
 		if ((expected == null) != (actual == null)) {
 			System.out.println("Failed test, expected = " + expected + ", actual = " + actual);
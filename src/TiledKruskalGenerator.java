@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Splits the grid into square tiles which are generated on their own
+ * threads with their own disjoint sets and random generators, then joins
+ * neighbouring tiles through single random walls. See
+ * Maze.Algorithm.TILED.
+ */
+public class TiledKruskalGenerator implements MazeGenerator {
+
+	private static int TILE_SIZE = 256;
+
+	/**
+	 * Generates every tile as its own perfect maze, then joins the tiles
+	 * with a randomized Kruskal's algorithm over the grid of tiles. Each
+	 * join opens one random wall on the border of the two tiles, so the
+	 * tile trees and the joins together form a single spanning tree.
+	 */
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+		int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+		int numTiles = tilesAcross * tilesDown;
+		long[] seeds = new long[numTiles];
+		for (int i = 0; i < numTiles; i++)
+			seeds[i] = random.nextLong();
+		ParallelTasks.parallelFor(numTiles, tile -> {
+			int tileRow = tile / tilesAcross;
+			int tileCol = tile % tilesAcross;
+			KruskalGenerator.generateRegion(maze, tileStart(tileRow, tilesDown, height), tileStart(tileRow + 1, tilesDown, height),
+			    tileStart(tileCol, tilesAcross, width), tileStart(tileCol + 1, tilesAcross, width),
+			    new SplittableRandom(seeds[tile]), null);
+		});
+
+		int[] borders = new int[(tilesDown - 1) * tilesAcross + tilesDown * (tilesAcross - 1)];
+		int count = 0;
+		for (int tile = 0; tile < numTiles; tile++) {
+			if (tile >= tilesAcross)
+				count = KruskalGenerator.insertShuffled(borders, count, tile * Maze.DIR_COUNT + Maze.NORTH, random);
+			if (tile % tilesAcross > 0)
+				count = KruskalGenerator.insertShuffled(borders, count, tile * Maze.DIR_COUNT + Maze.WEST, random);
+		}
+		IntDisjointSets tileSets = new ArrayDisjointSets(numTiles, random);
+		for (int border : borders) {
+			int tile = border / Maze.DIR_COUNT;
+			int wallDir = border % Maze.DIR_COUNT;
+			int neighbor = wallDir == Maze.NORTH ? tile - tilesAcross : tile - 1;
+			if (tileSets.tryUnion(tile, neighbor)) {
+				int tileRow = tile / tilesAcross;
+				int tileCol = tile % tilesAcross;
+				int top = tileStart(tileRow, tilesDown, height);
+				int left = tileStart(tileCol, tilesAcross, width);
+				if (wallDir == Maze.NORTH) {
+					int col = left + random.nextInt(tileStart(tileCol + 1, tilesAcross, width) - left);
+					maze.openWall(top * width + col, Maze.NORTH);
+				} else {
+					int row = top + random.nextInt(tileStart(tileRow + 1, tilesDown, height) - top);
+					maze.openWall(row * width + left, Maze.WEST);
+				}
+			}
+		}
+		maze.countGeneration(borders.length, tileSets);
+	}
+
+	/**
+	 * @return The first row (or column) of tile i when length rows are
+	 * split into numTiles tiles of nearly equal size
+	 */
+	private static int tileStart(int i, int numTiles, int length) {
+		return (int)((long)length * i / numTiles);
+	}
+}
@@ -1,14 +1,22 @@
 import java.util.*;
 
+/**
+ * Disjoint sets with neither union by rank nor path compression, as a
+ * baseline for the others. Elements are numbered by an ElementIds table
+ * and parent links are kept in an int array indexed by those ids.
+ */
 public class TrivialDisjointSets<E> implements DisjointSets<E> {
 
-	private HashMap<E, SetElement<E>> elements;
-	private SetIDGenerator idGen;
+	private ElementIds<E> elements;
+	// parent[id] == id for the root of a set
+	private int[] parent;
 	private int numSets;
+	// Only counted while MazeMetrics.ENABLED
+	private long finds;
 
 	public TrivialDisjointSets() {
-		elements = new HashMap<>();
-		idGen = new SetIDGenerator();
+		elements = new ElementIds<>();
+		parent = new int[16];
 		numSets = 0;
 	}
 
@@ -27,10 +35,14 @@ public class TrivialDisjointSets<E> implements DisjointSets<E> {
 	public void makeSet(E data) {
 		if (data == null) {
 			throw new IllegalArgumentException("Cannot add null elements to a set.");
-		} else if (elements.containsKey(data)) {
+		} else if (elements.add(data) >= 0) {
 			throw new IllegalArgumentException("Data element is already in a set.");
 		}
-		elements.put(data, new SetElement<E>(data, idGen.getNextID()));
+		int id = elements.size() - 1;
+		if (id == parent.length) {
+			parent = Arrays.copyOf(parent, id * 2);
+		}
+		parent[id] = id;
 		numSets++;
 	}
 
@@ -43,14 +55,16 @@ public class TrivialDisjointSets<E> implements DisjointSets<E> {
 	 * After this operation, find(d1) == find(d2)
 	 */
 	public void union(E d1, E d2) {
-		if (!elements.containsKey(d1) || !elements.containsKey(d2)) {
+		int id1 = elements.get(d1);
+		int id2 = elements.get(d2);
+		if (id1 < 0 || id2 < 0) {
 			throw new IllegalArgumentException("Both elements must already be in a set.");
 		}
-		if (getRoot(elements.get(d1)) == getRoot(elements.get(d2))) {
+		int root1 = getRoot(id1);
+		if (root1 == getRoot(id2)) {
 			throw new IllegalStateException("Both elements are already in the same set.");
 		}
-		SetElement<E> set1 = getRoot(elements.get(d1));
-		set1.parent = elements.get(d2);
+		parent[root1] = id2;
 		numSets--;
 	}
 
@@ -62,16 +76,22 @@ public class TrivialDisjointSets<E> implements DisjointSets<E> {
 	 * find(x) == find(y) iff x and y are part of the same set
 	 */
 	public int find(E data) {
-		if (!elements.containsKey(data)) {
+		int id = elements.get(data);
+		if (id < 0) {
 			return -1;
 		}
-		SetElement<E> root = getRoot(elements.get(data));
-		return root.id;
+		return getRoot(id);
 	}
 
-	private SetElement<E> getRoot(SetElement<E> curr) {
-		while (curr.parent != null) {
-			curr = curr.parent;
+	private int getRoot(int curr) {
+		int length = 0;
+		while (parent[curr] != curr) {
+			curr = parent[curr];
+			length++;
+		}
+		if (MazeMetrics.ENABLED) {
+			finds++;
+			MazeMetrics.recordFindLength(length);
 		}
 		return curr;
 	}
@@ -84,40 +104,27 @@ public class TrivialDisjointSets<E> implements DisjointSets<E> {
 		return numSets;
 	}
 
+	public long getFindCount() {
+		return finds;
+	}
+
+	public long getCompressionSteps() {
+		return 0;
+	}
+
 	public double getAverageDepth() {
-		if (elements.size() == 0) {
+		int size = elements.size();
+		if (size == 0) {
 			return 0;
 		}
 		double sum = 0;
-		for (SetElement<E> s : elements.values()) {
-			while (s.parent != null) {
-				s = s.parent;
+		for (int i = 0; i < size; i++) {
+			int s = i;
+			while (parent[s] != s) {
+				s = parent[s];
 				sum++;
 			}
 		}
-		return sum / elements.size();
-	}
-
-	private static class SetElement<E> {
-		private E data;
-		private int id;
-		private SetElement<E> parent;
-
-		public SetElement(E data, int setID) {
-			this.data = data;
-			this.id = setID;
-			this.parent = null;
-		}
-
-		public String toString() {
-			return "{" + data + ", " + parent + "}";
-		}
-	}
-
-	private class SetIDGenerator {
-		int currID;
-		private int getNextID() {
-			return currID++;
-		}
+		return sum / size;
 	}
 }
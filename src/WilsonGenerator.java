@@ -0,0 +1,73 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Wilson's algorithm: from every cell not yet in the maze, walk at random
+ * until the walk hits the maze, then carve the walk with its loops
+ * erased. Every spanning tree is equally likely, so the maze has no bias
+ * in any direction, but the first walks wander for a long time before
+ * they find the few cells in the maze. Walks are recorded as the
+ * neighbour each cell was last left towards in an int array; a walk
+ * which comes back to a cell overwrites its exit, which erases the loop
+ * for free. See Maze.Algorithm.WILSON.
+ */
+public class WilsonGenerator implements MazeGenerator {
+
+	public void generate(Maze maze, RandomGenerator random) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		int numCells = width * height;
+		GeneratorScratch scratch = maze.scratch();
+		int[] next = scratch.ints(numCells);
+		long[] inMaze = scratch.clearedLongs((numCells + 63) >>> 6);
+		int root = random.nextInt(numCells);
+		inMaze[root >>> 6] |= 1L << root;
+
+		long steps = 0;
+		for (int start = 0; start < numCells; start++) {
+			int cell = start;
+			while ((inMaze[cell >>> 6] & (1L << cell)) == 0) {
+				int step = randomNeighbor(cell, width, height, random);
+				next[cell] = step;
+				cell = step;
+				steps++;
+			}
+			// Carve the loop-erased walk
+			for (cell = start; (inMaze[cell >>> 6] & (1L << cell)) == 0; cell = next[cell]) {
+				maze.openPassage(cell, next[cell]);
+				inMaze[cell >>> 6] |= 1L << cell;
+			}
+		}
+		// Steps erased with a loop count as rejected picks
+		maze.countGeneration(steps, numCells - 1);
+	}
+
+	/**
+	 * @return A uniformly chosen neighbour of cell inside the maze
+	 */
+	private static int randomNeighbor(int cell, int width, int height, RandomGenerator random) {
+		int row = cell / width;
+		int col = cell - row * width;
+		// Retry the rare picks which leave the maze: a cell has at least
+		// two of its four neighbours inside
+		while (true) {
+			switch (random.nextInt(4)) {
+				case 0:
+					if (row > 0)
+						return cell - width;
+					break;
+				case 1:
+					if (col > 0)
+						return cell - 1;
+					break;
+				case 2:
+					if (col + 1 < width)
+						return cell + 1;
+					break;
+				default:
+					if (row + 1 < height)
+						return cell + width;
+					break;
+			}
+		}
+	}
+}